@@ -0,0 +1,57 @@
+package com.sony.bytelandassessment.benchmark;
+
+import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.SolverType;
+import com.sony.bytelandassessment.generator.TreeShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmark of BytelandUnionExperiment.calculateMinUnionCount on generated trees,
+ * from parent links given in input fashion to the step number.
+ * Simulation engines take a round per leaf on stars, so they should be given sizes up to 10^4,
+ * e.g. -p solver=COMPACT_UNION_GRAPH -p size=10,1000
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExperimentBenchmark {
+    @Param({"PATH", "STAR", "BINARY", "RANDOM_RECURSIVE", "CATERPILLAR"})
+    public TreeShape shape;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"UNION_TREE"})
+    public SolverType solver;
+
+    private int[] parents;
+
+    @Setup(Level.Trial)
+    public void generate(){
+        parents = shape.generate(size, 42);
+    }
+
+    @Benchmark
+    public int calculateMinUnionCount() throws Exception{
+        BytelandUnionExperiment experiment = new BytelandUnionExperiment(size, Integer.MAX_VALUE);
+        experiment.setAdjacencyMatrix(parents, parents.length);
+        experiment.setSolverType(solver);
+        return experiment.calculateMinUnionCount();
+    }
+}
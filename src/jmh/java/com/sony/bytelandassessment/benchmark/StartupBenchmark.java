@@ -0,0 +1,108 @@
+package com.sony.bytelandassessment.benchmark;
+
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import com.sony.bytelandassessment.generator.TreeShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first answer of a fresh launch of the command line jar, from process start until the first step number
+ * is read from its stdout. DEFAULT launches the jar as is; FAST_START adds the options of target/fast-start.args,
+ * so both the appcds and benchmark profiles should be built, from the project directory:
+ *      mvn -P appcds,benchmark package
+ *      java -jar target/byteland-assessment-maven-benchmarks.jar StartupBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+    /**
+     * How the jar is launched.
+     */
+    public enum Launch {
+        DEFAULT,
+        FAST_START
+    }
+
+    @Param({"DEFAULT", "FAST_START"})
+    public Launch launch;
+
+    @Param({"10", "200"})
+    public int count;
+
+    @Param({"target/byteland-assessment-maven.jar"})
+    public String jar;
+
+    private List<String> command;
+    private byte[] batch;
+    private Process process;
+    private BufferedReader stdout;
+
+    @Setup(Level.Trial)
+    public void prepare(){
+        command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if(launch==Launch.FAST_START){
+            File args = new File(new File(jar).getParentFile(), "fast-start.args");
+            if(!args.isFile()){
+                throw new IllegalStateException(String.format("%s is missing, build with -P appcds.", args));
+            }
+            command.add("@" + args.getPath());
+        }
+        command.add("-jar");
+        command.add(jar);
+
+        ExperimentGenerator generator = new ExperimentGenerator(TreeShape.RANDOM_RECURSIVE, 42, true);
+        StringBuilder text = new StringBuilder().append(count).append('\n');
+        for(int i=0; i<count; i++){
+            text.append(300).append('\n').append(generator.nextExperiment(300)).append('\n');
+        }
+        batch = text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public String firstAnswer() throws Exception{
+        process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        OutputStream stdin = process.getOutputStream();
+        stdin.write(batch);
+        stdin.close();
+        stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+        String line = stdout.readLine();
+        if(line==null || !line.matches("\\d+")){
+            throw new IllegalStateException(String.format("Launch printed no answer: %s", line));
+        }
+        return line;
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws Exception{
+        //Rest of the batch is not measured.
+        while(stdout.readLine()!=null){
+            //Draining.
+        }
+        process.waitFor();
+    }
+}
@@ -0,0 +1,74 @@
+package com.sony.bytelandassessment.benchmark;
+
+import com.sony.bytelandassessment.datastructure.UnionGraph;
+import com.sony.bytelandassessment.exceptions.LogicViolationException;
+import com.sony.bytelandassessment.exceptions.NotUnifiableException;
+import com.sony.bytelandassessment.generator.TreeShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of UnionGraph construction and unification on generated trees.
+ * Default sizes are kept small, since UnionGraph is quadratic on stars; larger ones can be given by -p size=...
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnionGraphBenchmark {
+    @Param({"PATH", "STAR", "BINARY", "RANDOM_RECURSIVE", "CATERPILLAR"})
+    public TreeShape shape;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private List<List<Integer>> adjacencyMatrix;
+    private UnionGraph graph;
+
+    /**
+     * Builds neighbour lists of every city, row i holds neighbours of city i as BytelandUnionExperiment gives them.
+     */
+    @Setup(Level.Trial)
+    public void generate(){
+        int[] parents = shape.generate(size, 42);
+        adjacencyMatrix = new ArrayList<List<Integer>>(size);
+        for(int city=0; city<size; city++){
+            adjacencyMatrix.add(new ArrayList<Integer>());
+        }
+        for(int city=1; city<size; city++){
+            adjacencyMatrix.get(city).add(parents[city - 1]);
+            adjacencyMatrix.get(parents[city - 1]).add(city);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void build() throws LogicViolationException{
+        graph = new UnionGraph(adjacencyMatrix);
+    }
+
+    @Benchmark
+    public UnionGraph construct() throws LogicViolationException{
+        return new UnionGraph(adjacencyMatrix);
+    }
+
+    @Benchmark
+    public int unify() throws NotUnifiableException, LogicViolationException{
+        return graph.unifyAndReturnStepNumber();
+    }
+}
@@ -0,0 +1,368 @@
+package com.sony.bytelandassessment;
+
+import com.sony.bytelandassessment.cache.ResultCache;
+import com.sony.bytelandassessment.datastructure.SolverContext;
+import com.sony.bytelandassessment.exceptions.WrongInputException;
+import com.sony.bytelandassessment.io.IntTokenizer;
+import com.sony.bytelandassessment.io.MappedExperimentFile;
+import com.sony.bytelandassessment.io.ResultWriter;
+import com.sony.bytelandassessment.metrics.ExperimentRecord;
+import com.sony.bytelandassessment.metrics.MetricsReporter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Solves experiments of a batch and writes their results in input order through a ResultWriter.
+ * With a single worker experiments are solved on the calling thread. With more workers they are solved concurrently
+ * by a fixed thread pool while the calling thread keeps reading input; results are still printed in input order.
+ * Experiments in flight are bounded by their total number of cities, so memory stays bounded for large batches.
+ *
+ * Whatever the number of workers and the input, a failed experiment is reported in its place and not counted, so
+ * a batch reads another experiment in place of each failed one, see countSucceeded.
+ */
+public class BatchRunner {
+    /**
+     * Default upper limit of total number of cities of experiments in flight.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT_CITIES = 1 << 24;
+
+    private final int workers;
+    private final long maxInFlightCities;
+    private final int maxInFlightExperiments;
+    private final ResultWriter writer;
+    private final ExecutorService executor;
+    private final ArrayDeque<PendingExperiment> pending = new ArrayDeque<PendingExperiment>();
+    private long inFlightCities = 0;
+    private int submitted = 0;//Number of experiments submitted.
+    private int failed = 0;//Number of submitted experiments known to be failed.
+    private int[] sharedBuffer = new int[16];//Parent links buffer reused when experiments are solved one by one.
+    private final SolverContext sharedContext = new SolverContext();
+    private ForkJoinPool roundPool;
+    private final ThreadLocal<SolverContext> workerContexts = new ThreadLocal<SolverContext>() {
+        @Override
+        protected SolverContext initialValue() {
+            return new SolverContext();
+        }
+    };
+
+    /**
+     * Creates a runner.
+     * @param workers Number of worker threads, 1 solves experiments on the calling thread.
+     * @param maxInFlightCities Upper limit of total number of cities of experiments in flight.
+     * @param writer Writer results and errors are queued to, closed by finish.
+     */
+    public BatchRunner(int workers, long maxInFlightCities, ResultWriter writer){
+        if(workers<1){
+            throw new IllegalArgumentException("Number of workers should be positive.");
+        }
+        this.workers = workers;
+        this.maxInFlightCities = maxInFlightCities;
+        this.maxInFlightExperiments = workers*256;
+        this.writer = writer;
+        this.executor = workers==1 ? null : Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private int count = 0;
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "byteland-worker-" + (count++));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Gets number of worker threads.
+     * @return Number of workers.
+     */
+    public int getWorkers(){
+        return this.workers;
+    }
+
+    /**
+     * Sets pool large unification rounds of experiments are run by, see BytelandUnionExperiment.setRoundPool.
+     * @param roundPool Fork/join pool, null to run rounds on the thread solving the experiment.
+     */
+    public void setRoundPool(ForkJoinPool roundPool){
+        this.roundPool = roundPool;
+    }
+
+    /**
+     * Gets an array which parent links of the next experiment can be parsed into.
+     * Solving one by one, the same array is returned every time; otherwise every experiment gets its own array.
+     * @param length Minimum length.
+     * @return Array of at least given length.
+     */
+    public int[] acquireBuffer(int length){
+        if(executor!=null){
+            return new int[length];
+        }
+        if(sharedBuffer.length<length){
+            sharedBuffer = new int[Math.max(length, sharedBuffer.length*2)];
+        }
+        return sharedBuffer;
+    }
+
+    /**
+     * Gets message an experiment failed with, as it is reported among results. Exceptions without a message, such as
+     * a NullPointerException, are described by their type.
+     * @param e Exception experiment failed with.
+     * @return Message, never null.
+     */
+    public static String messageOf(Throwable e){
+        return e.getMessage()!=null ? e.getMessage() : e.toString();
+    }
+
+    /**
+     * Submits an experiment whose adjacency matrix is set. Experiment is solved in working arrays of the thread it is
+     * solved by, so they are reused by following experiments.
+     * Solving one by one, result is queued right away. With multiple workers, it is queued in input order later on.
+     * @param index Index of experiment in input, errors are reported with it.
+     * @param experiment Experiment.
+     * @throws InterruptedException
+     * @throws IOException If results cannot be written.
+     */
+    public void submit(int index, final BytelandUnionExperiment experiment) throws InterruptedException, IOException{
+        experiment.setRoundPool(roundPool);
+        submitted++;
+        if(executor==null){
+            experiment.setSolverContext(sharedContext);
+            int stepNumber;
+            try {
+                stepNumber = experiment.calculateMinUnionCount();//Output of minimum step for unification
+            }
+            catch (Exception e){
+                failed++;
+                writer.writeError(index, messageOf(e));
+                return;
+            }
+            writer.writeResult(index, stepNumber);
+            return;
+        }
+        int numOfCities = experiment.getNumOfCities();
+        while(!pending.isEmpty() &&
+                (inFlightCities + numOfCities > maxInFlightCities || pending.size() >= maxInFlightExperiments)){
+            printHead();
+        }
+        Future<Integer> result = executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                experiment.setSolverContext(workerContexts.get());
+                return experiment.calculateMinUnionCount();
+            }
+        });
+        pending.addLast(new PendingExperiment(result, index, numOfCities));
+        inFlightCities += numOfCities;
+        //Results which are already done are printed without waiting.
+        while(!pending.isEmpty() && pending.peekFirst().result.isDone()){
+            printHead();
+        }
+    }
+
+    /**
+     * Gets number of submitted experiments which did not fail. Experiments in flight are counted as long as given
+     * number is not reached; otherwise they are waited for first, since any of them may still fail.
+     * Input is read until this gives the number of experiments the batch declares.
+     * @param wanted Number of experiments wanted.
+     * @return Number of experiments which did not fail, or may not fail yet if wanted is not reached.
+     * @throws InterruptedException
+     * @throws IOException If results cannot be written.
+     */
+    public int countSucceeded(int wanted) throws InterruptedException, IOException{
+        if(submitted - failed >= wanted){
+            while(!pending.isEmpty()){
+                printHead();
+            }
+        }
+        return submitted - failed;
+    }
+
+    /**
+     * Waits for experiments in flight, writes their results, stops workers and closes the result writer.
+     * @throws InterruptedException
+     * @throws IOException If results cannot be written.
+     */
+    public void finish() throws InterruptedException, IOException{
+        while(!pending.isEmpty()){
+            printHead();
+        }
+        if(executor!=null){
+            executor.shutdown();
+        }
+        writer.close();
+    }
+
+    /**
+     * Reports an experiment which is rejected before it is submitted, in its place among results. Like a failed
+     * experiment, it is not counted.
+     * @param index Index of experiment in input.
+     * @param message Error message.
+     * @throws InterruptedException
+     * @throws IOException If results cannot be written.
+     */
+    public void reject(int index, String message) throws InterruptedException, IOException{
+        while(!pending.isEmpty()){
+            printHead();
+        }
+        writer.writeError(index, message);
+    }
+
+    /**
+     * Solves experiments of a memory-mapped batch file and writes their results in file order.
+     * File is split on experiment boundaries and parts are solved by workers in parallel. Failed experiments are
+     * reported in their place, and the next experiments of the file should be solved in place of them.
+     * @param file Batch file.
+     * @param firstExperiment Index of the first experiment to solve.
+     * @param count Number of experiments to solve.
+     * @param cityLimit Upper limit of number of cities per experiment.
+     * @param solverType Solver engine.
+     * @param resultCache Result cache, null to solve every experiment.
+     * @param metricsReporter Reporter measurements of experiments are given to, null to disable metrics.
+     * @return Number of failed experiments.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public int runFile(MappedExperimentFile file, int firstExperiment, int count, final int cityLimit,
+                       final SolverType solverType, final ResultCache resultCache,
+                       final MetricsReporter metricsReporter) throws IOException, InterruptedException{
+        List<MappedExperimentFile.Split> splits = file.split(firstExperiment, count, workers*4);
+        int failures = 0;
+        if(executor==null){
+            for(MappedExperimentFile.Split split: splits){
+                failures += print(solveSplit(split, cityLimit, solverType, resultCache, metricsReporter, sharedContext,
+                        roundPool));
+            }
+            return failures;
+        }
+        List<Future<SplitResult>> results = new ArrayList<Future<SplitResult>>(splits.size());
+        for(final MappedExperimentFile.Split split: splits){
+            results.add(executor.submit(new Callable<SplitResult>() {
+                @Override
+                public SplitResult call() throws Exception {
+                    return solveSplit(split, cityLimit, solverType, resultCache, metricsReporter,
+                            workerContexts.get(), roundPool);
+                }
+            }));
+        }
+        for(Future<SplitResult> result: results){
+            try {
+                failures += print(result.get());
+            }
+            catch (ExecutionException e){
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return failures;
+    }
+
+    private static SplitResult solveSplit(MappedExperimentFile.Split split, int cityLimit, SolverType solverType,
+                                          ResultCache resultCache, MetricsReporter metricsReporter,
+                                          SolverContext context, ForkJoinPool roundPool) throws IOException{
+        IntTokenizer tokenizer = split.openTokenizer();
+        SplitResult result = new SplitResult(split.getFirstExperiment(), split.getExperimentCount());
+        int[] parents = new int[16];
+        for(int i=0; i<split.getExperimentCount(); i++){
+            try {
+                int numOfCities;
+                BytelandUnionExperiment experiment;
+                try {
+                    numOfCities = tokenizer.nextInt();
+                    experiment = new BytelandUnionExperiment(numOfCities, cityLimit);
+                }
+                catch (WrongInputException e){
+                    tokenizer.skipNextLine();//Parent links of rejected experiment.
+                    throw e;
+                }
+                if(parents.length<numOfCities-1){
+                    parents = new int[Math.max(numOfCities-1, parents.length*2)];
+                }
+                long start = System.nanoTime();
+                int length = tokenizer.readLine(parents);
+                if(metricsReporter!=null){
+                    ExperimentRecord record = new ExperimentRecord(metricsReporter,
+                            split.getFirstExperiment() + i, numOfCities);
+                    record.parsed(System.nanoTime() - start);
+                    experiment.setMetrics(record);
+                }
+                experiment.setAdjacencyMatrix(parents, length);
+                experiment.setSolverType(solverType);
+                experiment.setResultCache(resultCache);
+                experiment.setSolverContext(context);
+                experiment.setRoundPool(roundPool);
+                result.steps[i] = experiment.calculateMinUnionCount();
+            }
+            catch (IOException e){
+                throw e;
+            }
+            catch (Exception e){
+                result.errors[i] = messageOf(e);//Never null, null marks a solved experiment.
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Number of failed experiments.
+     */
+    private int print(SplitResult result) throws InterruptedException, IOException{
+        int failures = 0;
+        for(int i=0; i<result.steps.length; i++){
+            if(result.errors[i]!=null){
+                writer.writeError(result.firstExperiment + i, result.errors[i]);
+                failures++;
+            }
+            else {
+                writer.writeResult(result.firstExperiment + i, result.steps[i]);
+            }
+        }
+        return failures;
+    }
+
+    private void printHead() throws InterruptedException, IOException{
+        PendingExperiment head = pending.removeFirst();
+        inFlightCities -= head.numOfCities;
+        int stepNumber;
+        try {
+            stepNumber = head.result.get();
+        }
+        catch (ExecutionException e){
+            failed++;
+            writer.writeError(head.index, messageOf(e.getCause()));
+            return;
+        }
+        writer.writeResult(head.index, stepNumber);
+    }
+
+    private static class SplitResult {
+        private final int firstExperiment;
+        private final int[] steps;
+        private final String[] errors;
+
+        private SplitResult(int firstExperiment, int count){
+            this.firstExperiment = firstExperiment;
+            this.steps = new int[count];
+            this.errors = new String[count];
+        }
+    }
+
+    private static class PendingExperiment {
+        private final Future<Integer> result;
+        private final int index;
+        private final int numOfCities;
+
+        private PendingExperiment(Future<Integer> result, int index, int numOfCities){
+            this.result = result;
+            this.index = index;
+            this.numOfCities = numOfCities;
+        }
+    }
+}
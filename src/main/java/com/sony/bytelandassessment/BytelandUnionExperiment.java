@@ -1,19 +1,42 @@
 package com.sony.bytelandassessment;
 
+import com.sony.bytelandassessment.cache.ResultCache;
+import com.sony.bytelandassessment.cache.TreeKey;
+import com.sony.bytelandassessment.datastructure.CompactUnionGraph;
+import com.sony.bytelandassessment.datastructure.DisjointSetUnionGraph;
+import com.sony.bytelandassessment.datastructure.OffHeapUnionTree;
+import com.sony.bytelandassessment.datastructure.SolverContext;
 import com.sony.bytelandassessment.datastructure.UnionGraph;
+import com.sony.bytelandassessment.datastructure.UnionTree;
 import com.sony.bytelandassessment.exceptions.LogicViolationException;
 import com.sony.bytelandassessment.exceptions.NotUnifiableException;
 import com.sony.bytelandassessment.exceptions.WrongInputException;
+import com.sony.bytelandassessment.io.GraphFile;
+import com.sony.bytelandassessment.metrics.SolverMetrics;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class BytelandUnionExperiment {
+    /**
+     * Upper limit of number of cities given in assessment.
+     */
+    public static final int DEFAULT_CITY_LIMIT = 600;
+
     private List<List<Integer>> adjacencyMatrix;
+    private int[] parents;//Parent links, kept when adjacency matrix is given in that fashion.
     private Integer numOfCities;
+    private SolverType solverType = SolverType.UNION_GRAPH;
+    private ResultCache resultCache;
+    private SolverMetrics metrics = SolverMetrics.NO_OP;
+    private SolverContext solverContext;
+    private ForkJoinPool roundPool;
+    private GraphFile graphFile;//Prepared graph, parent links are copied out of it only if a solver needs them.
+    private UnionTree subtreeTree;//Tree subtree queries are answered from, solved by the first query.
 
     /**
      * Creates experiment object which represents single experiment.
@@ -21,13 +44,23 @@ public class BytelandUnionExperiment {
      * @throws WrongInputException
      */
     public BytelandUnionExperiment(Integer numOfCities) throws WrongInputException {
+        this(numOfCities, DEFAULT_CITY_LIMIT);
+    }
+
+    /**
+     * Creates experiment object which represents single experiment, with an explicit upper limit of number of cities.
+     * Large limits should be used together with parent links (int[] or String) and UNION_TREE solver,
+     * since adjacency matrix and simulation engines do not scale to millions of cities.
+     * @param numOfCities Number of cities in the current experiment. This parameter should fullfill the condition [2<=numOfCities<=cityLimit)
+     * @param cityLimit Upper limit of number of cities.
+     * @throws WrongInputException
+     */
+    public BytelandUnionExperiment(Integer numOfCities, int cityLimit) throws WrongInputException {
         //Number of cities in this experiment
-        if(numOfCities<2 || numOfCities>600){
-            throw new WrongInputException("numOfCities should be such that it can fulfill expression 2<=numOfCities<=600");
+        if(numOfCities<2 || numOfCities>cityLimit){
+            throw new WrongInputException(String.format("numOfCities should be such that it can fulfill expression 2<=numOfCities<=%s", cityLimit));
         }
         this.numOfCities = numOfCities;
-        //Capacity pre-allocated for performance.
-        this.adjacencyMatrix = new ArrayList<List<Integer>>(numOfCities);
     }
 
     /**
@@ -39,19 +72,52 @@ public class BytelandUnionExperiment {
         if(matrixString == null){
             throw new NullPointerException("matrixString cannot be null!");
         }
-        //Parsing of value string
-        String[] matrixValueStrings = matrixString.trim().split("( )+");
-        List<Integer> matrixValues = new LinkedList<Integer>();
-        for(String valueString:matrixValueStrings){
-            try {
-                matrixValues.add(Integer.parseInt(valueString.trim()));
+        //Parsing of value string, values are read straight into primitive array.
+        int[] matrixValues = new int[this.numOfCities-1];
+        int count = 0;
+        int length = matrixString.length();
+        int position = 0;
+        while(true){
+            while(position<length && Character.isWhitespace(matrixString.charAt(position))){
+                position++;
             }
-            catch (NumberFormatException e){
-                throw new WrongInputException("Value string should consists of integer values which spaced eachother.");
+            if(position==length){
+                break;
+            }
+            int start = position;
+            while(position<length && !Character.isWhitespace(matrixString.charAt(position))){
+                position++;
             }
+            if(count==matrixValues.length){
+                throw new WrongInputException(String.format("Number of relations should be equal to %s", this.numOfCities-1));
+            }
+            matrixValues[count++] = parseValue(matrixString, start, position);
+        }
+        if(count!=matrixValues.length){
+            throw new WrongInputException(String.format("Number of relations should be equal to %s", this.numOfCities-1));
         }
-        setAdjacencyMatrix(matrixValues.toArray(new Integer[matrixValues.size()]));
+        setAdjacencyMatrix(matrixValues);
+    }
 
+    private static int parseValue(String matrixString, int start, int end) throws WrongInputException {
+        boolean negative = matrixString.charAt(start)=='-';
+        int position = (negative || matrixString.charAt(start)=='+') ? start+1 : start;
+        if(position==end){
+            throw new WrongInputException("Value string should consists of integer values which spaced eachother.");
+        }
+        long value = 0;
+        for(; position<end; position++){
+            char digit = matrixString.charAt(position);
+            if(digit<'0' || digit>'9' || value>Integer.MAX_VALUE){
+                throw new WrongInputException("Value string should consists of integer values which spaced eachother.");
+            }
+            value = value*10 + (digit-'0');
+        }
+        value = negative ? -value : value;
+        if(value<Integer.MIN_VALUE || value>Integer.MAX_VALUE){
+            throw new WrongInputException("Value string should consists of integer values which spaced eachother.");
+        }
+        return (int)value;
     }
 
     /**
@@ -60,22 +126,45 @@ public class BytelandUnionExperiment {
      * @throws WrongInputException
      */
     public void setAdjacencyMatrix(@NotNull Integer[] matrixValues) throws WrongInputException {
-
-        if(matrixValues.length != this.numOfCities-1){
-            throw new WrongInputException(String.format("Number of relations should be equal to %s", this.numOfCities-1));
+        int[] values = new int[matrixValues.length];
+        for(int i=0; i<matrixValues.length; i++){
+            values[i] = matrixValues[i];
         }
-        List<List<Integer>> adjacencyMatrix = new ArrayList<List<Integer>>(numOfCities);
+        setAdjacencyMatrix(values);
+    }
 
-        for(int i=0; i<numOfCities; i++){
-            adjacencyMatrix.add(new LinkedList<Integer>());
+    /**
+     * Sets adjacency matrix for given parent links: city (i+1) is connected to city matrixValues[i].
+     * Array is kept as it is (not copied) and adjacency matrix is built only if a solver needs it.
+     * @param matrixValues Matrix values.
+     * @throws WrongInputException
+     */
+    public void setAdjacencyMatrix(@NotNull int[] matrixValues) throws WrongInputException {
+        setAdjacencyMatrix(matrixValues, matrixValues.length);
+    }
+
+    /**
+     * Sets adjacency matrix for parent links held in the first length values of given array, so that a buffer can be
+     * reused between experiments. Array is kept as it is (not copied), it should not be modified until
+     * calculateMinUnionCount returns.
+     * @param matrixValues Matrix values.
+     * @param length Number of values in the array which belong to this experiment.
+     * @throws WrongInputException
+     */
+    public void setAdjacencyMatrix(@NotNull int[] matrixValues, int length) throws WrongInputException {
+
+        if(length != this.numOfCities-1 || matrixValues.length < length){
+            throw new WrongInputException(String.format("Number of relations should be equal to %s", this.numOfCities-1));
         }
-        for(int cityNum=0; cityNum<matrixValues.length; cityNum++){
-            Integer city1 = cityNum+1;
-            Integer city2 = matrixValues[cityNum];
-            adjacencyMatrix.get(city1).add(city2);
-            adjacencyMatrix.get(city2).add(city1);
+        for(int i=0; i<length; i++){
+            if(matrixValues[i]<0 || matrixValues[i]>=this.numOfCities){
+                throw new WrongInputException(String.format("Cities should be numbered in range [0, %s)", this.numOfCities));
+            }
         }
-        setAdjacencyMatrix(adjacencyMatrix);
+        this.parents = matrixValues;
+        this.adjacencyMatrix = null;
+        this.graphFile = null;
+        this.subtreeTree = null;
     }
 
     /**
@@ -88,6 +177,27 @@ public class BytelandUnionExperiment {
             throw new WrongInputException("Wrong number of cities! First dimension length of list should be (numOfCities-1)");
         }
         this.adjacencyMatrix = adjacencyMatrix;
+        this.parents = null;
+        this.graphFile = null;
+        this.subtreeTree = null;
+    }
+
+    /**
+     * Sets adjacency matrix kept in a prepared graph file. UNION_TREE solver works on the mapped file, so the graph
+     * does not have to fit on the heap; other solvers copy parent links out of it. File should stay open until
+     * calculateMinUnionCount returns.
+     * @param graphFile Graph file.
+     * @throws WrongInputException If number of cities of the file is not the one of this experiment.
+     */
+    public void setAdjacencyMatrix(@NotNull GraphFile graphFile) throws WrongInputException {
+        if(graphFile.getNumOfCities() != this.numOfCities){
+            throw new WrongInputException(String.format("Graph file holds %s cities, %s expected",
+                    graphFile.getNumOfCities(), this.numOfCities));
+        }
+        this.graphFile = graphFile;
+        this.adjacencyMatrix = null;
+        this.parents = null;
+        this.subtreeTree = null;
     }
 
     /**
@@ -95,21 +205,263 @@ public class BytelandUnionExperiment {
      * @return Step count
      */
     public Integer calculateMinUnionCount() throws LogicViolationException, NotUnifiableException {
-        if(this.adjacencyMatrix==null){
+        if(this.adjacencyMatrix==null && this.parents==null && this.graphFile==null){
             throw new NullPointerException("Adjacency matrix is not set yet");
         }
-        UnionGraph graph = new UnionGraph(this.adjacencyMatrix);
+        if(this.metrics == SolverMetrics.NO_OP){
+            return solve();
+        }
+        this.metrics.solveStarted();
+        try {
+            return solve();
+        }
+        catch (Exception e){
+            this.metrics.failed(e.getMessage());
+            throw e;
+        }
+    }
 
-        return graph.unifyAndReturnStepNumber();
+    private int solve() throws LogicViolationException, NotUnifiableException {
+        long start = System.nanoTime();
+        if(this.graphFile != null){
+            if(this.solverType == SolverType.UNION_TREE){
+                return solveGraphFile(start);
+            }
+            copyParentsOfGraphFile();
+        }
+        if(this.solverType == SolverType.UNION_TREE && this.resultCache != null && this.parents != null){
+            TreeKey key = TreeKey.of(this.parents, this.numOfCities);
+            if(key != null){
+                Integer cached = this.resultCache.get(key);
+                if(cached != null){
+                    this.metrics.solved(System.nanoTime() - start, cached);
+                    return cached;
+                }
+                int stepNumber = solveTree(start);
+                this.resultCache.put(key, stepNumber);
+                return stepNumber;
+            }
+        }
+        if(this.solverType == SolverType.UNION_TREE){
+            return solveTree(start);
+        }
+        int stepNumber;
+        if(this.solverType == SolverType.UNION_GRAPH){
+            UnionGraph graph = new UnionGraph(getAdjacencyMatrix());
+            long built = System.nanoTime();
+            this.metrics.built(built - start, graph.getNodes().size(), graph.getRelations().size());
+            graph.setMetrics(this.metrics);
+            stepNumber = graph.unifyAndReturnStepNumber();
+            this.metrics.solved(System.nanoTime() - built, stepNumber);
+            return stepNumber;
+        }
+        SolverContext context = getContext();
+        if(this.solverType == SolverType.DISJOINT_SET_UNION_GRAPH){
+            DisjointSetUnionGraph graph = this.parents != null ?
+                    new DisjointSetUnionGraph(this.parents, this.numOfCities, context) :
+                    new DisjointSetUnionGraph(this.adjacencyMatrix, context);
+            long built = System.nanoTime();
+            this.metrics.built(built - start, graph.getNodeCount(), graph.getRelationCount());
+            graph.setMetrics(this.metrics);
+            stepNumber = graph.unifyAndReturnStepNumber();
+            this.metrics.solved(System.nanoTime() - built, stepNumber);
+            return stepNumber;
+        }
+        CompactUnionGraph graph = this.parents != null ? new CompactUnionGraph(this.parents, this.numOfCities, context) :
+                new CompactUnionGraph(this.adjacencyMatrix, context);
+        long built = System.nanoTime();
+        this.metrics.built(built - start, graph.getNodeCount(), graph.getRelationCount());
+        graph.setMetrics(this.metrics);
+        graph.setParallelPool(this.roundPool);
+        stepNumber = graph.unifyAndReturnStepNumber();
+        this.metrics.solved(System.nanoTime() - built, stepNumber);
+        return stepNumber;
     }
 
     /**
-     * Gets adjacency matrix
+     * Calculates minimum number of steps needed to unify subtrees rooted at given cities, tree being rooted at city 0.
+     * Tree is solved once by the first call, which keeps the answer of every subtree, so each query costs O(1)
+     * afterwards. Answers are exact minimums as UNION_TREE gives them, whichever solver is set.
+     * @param cities Root cities of subtrees.
+     * @return Step numbers, in the order of cities.
+     * @throws WrongInputException
+     */
+    public int[] calculateSubtreeUnionCounts(@NotNull int... cities)
+            throws WrongInputException, LogicViolationException, NotUnifiableException {
+        if(this.adjacencyMatrix==null && this.parents==null && this.graphFile==null){
+            throw new NullPointerException("Adjacency matrix is not set yet");
+        }
+        if(this.graphFile != null){
+            copyParentsOfGraphFile();
+        }
+        for(int city: cities){
+            if(city<0 || city>=this.numOfCities){
+                throw new WrongInputException(String.format("Cities should be numbered in range [0, %s)", this.numOfCities));
+            }
+        }
+        if(this.subtreeTree == null){
+            //Own context, since answers are kept after other experiments are solved.
+            this.subtreeTree = this.parents != null ? new UnionTree(this.parents, this.numOfCities, new SolverContext()) :
+                    new UnionTree(this.adjacencyMatrix, new SolverContext());
+        }
+        int[] stepNumbers = new int[cities.length];
+        for(int i=0; i<cities.length; i++){
+            stepNumbers[i] = this.subtreeTree.getSubtreeStepNumber(cities[i]);
+        }
+        return stepNumbers;
+    }
+
+    /**
+     * Solves a prepared graph file with OffHeapUnionTree, which reads the mapped arrays in place.
+     */
+    private int solveGraphFile(long start) throws LogicViolationException, NotUnifiableException {
+        if(!this.graphFile.isConnected()){
+            throw new NotUnifiableException("This structure is not unifiable.");
+        }
+        OffHeapUnionTree tree = new OffHeapUnionTree(this.graphFile.getOffsets(), this.graphFile.getPostOrder(),
+                this.numOfCities);
+        this.metrics.built(System.nanoTime() - start, tree.getNodeCount(), Math.max(tree.getNodeCount() - 1, 0));
+        int stepNumber = tree.unifyAndReturnStepNumber();
+        this.metrics.solved(0, stepNumber);
+        return stepNumber;
+    }
+
+    /**
+     * Copies parent links out of graph file, for solvers which work on heap arrays.
+     */
+    private void copyParentsOfGraphFile(){
+        if(this.parents == null){
+            int[] values = new int[this.numOfCities - 1];
+            this.graphFile.getParents().get(values);
+            this.parents = values;
+        }
+    }
+
+    /**
+     * Solves with UnionTree, which does all its work while it is built.
+     */
+    private int solveTree(long start) throws LogicViolationException, NotUnifiableException {
+        SolverContext context = getContext();
+        UnionTree tree = this.parents != null ? new UnionTree(this.parents, this.numOfCities, context) :
+                new UnionTree(this.adjacencyMatrix, context);
+        this.metrics.built(System.nanoTime() - start, tree.getNodeCount(), Math.max(tree.getNodeCount() - 1, 0));
+        int stepNumber = tree.unifyAndReturnStepNumber();
+        this.metrics.solved(0, stepNumber);
+        return stepNumber;
+    }
+
+    private SolverContext getContext(){
+        return this.solverContext != null ? this.solverContext : new SolverContext();
+    }
+
+    /**
+     * Gets solver engine used by calculateMinUnionCount.
+     * @return Solver type.
+     */
+    public SolverType getSolverType(){
+        return this.solverType;
+    }
+
+    /**
+     * Sets solver engine used by calculateMinUnionCount. UNION_GRAPH by default; every simulation engine visits nodes
+     * and resolves ties by id, so they take the same steps.
+     * @param solverType Solver type.
+     */
+    public void setSolverType(@NotNull SolverType solverType){
+        if(solverType == null){
+            throw new NullPointerException("solverType cannot be null!");
+        }
+        this.solverType = solverType;
+    }
+
+    /**
+     * Gets cache results are looked up in.
+     * @return Result cache, null if results are not cached.
+     */
+    public ResultCache getResultCache(){
+        return this.resultCache;
+    }
+
+    /**
+     * Sets cache results are looked up in, so experiments with the same tree shape are solved once.
+     * Cache is used with UNION_TREE solver and parent links only, since results of simulation engines
+     * may depend on city labels.
+     * @param resultCache Result cache, null to disable.
+     */
+    public void setResultCache(ResultCache resultCache){
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Sets metrics parsing and solving of this experiment is reported to.
+     * @param metrics Metrics, SolverMetrics.NO_OP to disable.
+     */
+    public void setMetrics(@NotNull SolverMetrics metrics){
+        if(metrics == null){
+            throw new NullPointerException("metrics cannot be null!");
+        }
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets context whose working arrays UNION_TREE, COMPACT_UNION_GRAPH and DISJOINT_SET_UNION_GRAPH solvers reuse, so
+     * consecutive experiments solved by the same thread do not allocate them again. Context should not be used by another experiment until
+     * calculateMinUnionCount returns.
+     * @param solverContext Solver context, null to allocate working arrays for this experiment only.
+     */
+    public void setSolverContext(SolverContext solverContext){
+        this.solverContext = solverContext;
+    }
+
+    /**
+     * Sets pool large unification rounds of COMPACT_UNION_GRAPH solver are run by, while the graph is a tree. Step
+     * number is the same as with sequential rounds. Other solvers ignore it.
+     * @param roundPool Fork/join pool, null to run rounds on the solving thread.
+     */
+    public void setRoundPool(ForkJoinPool roundPool){
+        this.roundPool = roundPool;
+    }
+
+    /**
+     * Gets adjacency matrix, building it from parent links if it was given in that fashion.
      * @return Adjacency matrix.
      */
     public List<List<Integer>> getAdjacencyMatrix(){
+        if(this.adjacencyMatrix==null && this.graphFile!=null){
+            copyParentsOfGraphFile();
+        }
+        if(this.adjacencyMatrix==null && this.parents!=null){
+            List<List<Integer>> adjacencyMatrix = new ArrayList<List<Integer>>(numOfCities);
+            for(int i=0; i<numOfCities; i++){
+                adjacencyMatrix.add(new LinkedList<Integer>());
+            }
+            for(int cityNum=0; cityNum<numOfCities-1; cityNum++){
+                Integer city1 = cityNum+1;
+                Integer city2 = parents[cityNum];
+                adjacencyMatrix.get(city1).add(city2);
+                adjacencyMatrix.get(city2).add(city1);
+            }
+            this.adjacencyMatrix = adjacencyMatrix;
+        }
         return this.adjacencyMatrix;
     }
 
+    /**
+     * Gets parent links if adjacency matrix was given in that fashion.
+     * @return Parent links, only the first (numOfCities-1) values belong to this experiment.
+     *         Null if adjacency matrix was given as list.
+     */
+    public int[] getParents(){
+        return this.parents;
+    }
+
+    /**
+     * Gets number of cities.
+     * @return Number of cities.
+     */
+    public Integer getNumOfCities(){
+        return this.numOfCities;
+    }
+
 
 }
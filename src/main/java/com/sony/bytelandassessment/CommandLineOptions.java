@@ -0,0 +1,267 @@
+package com.sony.bytelandassessment;
+
+import com.sony.bytelandassessment.io.ResultWriter;
+
+/**
+ * Options given to Main in the fashion --name=value.
+ */
+public class CommandLineOptions {
+    /**
+     * Default maximum experiment number (exclusive).
+     */
+    public static final int DEFAULT_EXPERIMENT_LIMIT = 1000;
+
+    private SolverType solverType = SolverType.UNION_GRAPH;
+    private int cityLimit = BytelandUnionExperiment.DEFAULT_CITY_LIMIT;
+    private int experimentLimit = DEFAULT_EXPERIMENT_LIMIT;
+    private int workers = 1;
+    private int maxInFlightCities = BatchRunner.DEFAULT_MAX_IN_FLIGHT_CITIES;
+    private String inputFile = null;
+    private int cacheCapacity = 0;
+    private String metrics = null;
+    private boolean binaryInput = false;
+    private int servePort = 0;
+    private int roundThreads = 0;
+    private String graphFile;
+    private ResultWriter.FlushPolicy flushPolicy = ResultWriter.FlushPolicy.IDLE;
+
+    /**
+     * Parses command line arguments.
+     *      --solver=union_tree         Solver engine, see SolverType. union_graph by default.
+     *      --city-limit=N              Maximum number of cities per experiment.
+     *      --experiment-limit=N        Maximum number of experiments (exclusive).
+     *      --large                     Large-graph mode, lifts both limits and uses union_tree unless a solver is given.
+     *      --workers=N                 Number of threads experiments are solved by, 1 by default.
+     *      --max-in-flight-cities=N    Upper limit of total number of cities of experiments in flight.
+     *      --input=FILE                Reads experiments from memory-mapped FILE instead of stdin.
+     *      --format=text|binary        Format of input file, text by default. See BinaryBatchFile for binary format.
+     *      --cache=N                   Caches results of up to N tree shapes, works with union_tree solver only.
+     *      --metrics=json|jmx          Reports measurements of every experiment as JSON lines on stderr, or their
+     *                                  totals through JMX.
+     *      --round-threads=N           Runs large rounds of compact_union_graph solver by N threads.
+     *      --serve=PORT                Keeps running and solves experiments sent to PORT on loopback, see SolverServer.
+     *      --graph=FILE                Solves a single experiment prepared as graph file, see GraphFile.
+     *      --flush=record|idle|end     When buffered results are written out, idle by default. See ResultWriter.
+     * @param args Command line arguments.
+     * @return Parsed options.
+     */
+    public static CommandLineOptions parse(String[] args){
+        CommandLineOptions options = new CommandLineOptions();
+        boolean solverGiven = false;
+        boolean large = false;
+        for(String arg: args){
+            if(arg.equals("--large")){
+                large = true;
+            }
+            else if(arg.startsWith("--solver=")){
+                options.solverType = parseSolverType(valueOf(arg));
+                solverGiven = true;
+            }
+            else if(arg.startsWith("--city-limit=")){
+                options.cityLimit = parsePositive(arg);
+            }
+            else if(arg.startsWith("--experiment-limit=")){
+                options.experimentLimit = parsePositive(arg);
+            }
+            else if(arg.startsWith("--workers=")){
+                options.workers = parsePositive(arg);
+            }
+            else if(arg.startsWith("--max-in-flight-cities=")){
+                options.maxInFlightCities = parsePositive(arg);
+            }
+            else if(arg.startsWith("--input=")){
+                options.inputFile = valueOf(arg);
+            }
+            else if(arg.startsWith("--format=")){
+                String format = valueOf(arg).toLowerCase();
+                if(!format.equals("text") && !format.equals("binary")){
+                    throw new IllegalArgumentException(String.format("Unknown input format: %s", valueOf(arg)));
+                }
+                options.binaryInput = format.equals("binary");
+            }
+            else if(arg.startsWith("--cache=")){
+                options.cacheCapacity = parsePositive(arg);
+            }
+            else if(arg.startsWith("--round-threads=")){
+                options.roundThreads = parsePositive(arg);
+            }
+            else if(arg.startsWith("--serve=")){
+                options.servePort = parsePositive(arg);
+                if(options.servePort>65535){
+                    throw new IllegalArgumentException(String.format("Port number expected: %s", arg));
+                }
+            }
+            else if(arg.startsWith("--graph=")){
+                options.graphFile = valueOf(arg);
+            }
+            else if(arg.startsWith("--flush=")){
+                try {
+                    options.flushPolicy = ResultWriter.FlushPolicy.valueOf(valueOf(arg).toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(String.format("Unknown flush policy: %s", valueOf(arg)));
+                }
+            }
+            else if(arg.startsWith("--metrics=")){
+                options.metrics = valueOf(arg).toLowerCase();
+                if(!options.metrics.equals("json") && !options.metrics.equals("jmx")){
+                    throw new IllegalArgumentException(String.format("Unknown metrics output: %s", valueOf(arg)));
+                }
+            }
+            else {
+                throw new IllegalArgumentException(String.format("Unknown option: %s", arg));
+            }
+        }
+        if(large){
+            options.cityLimit = Integer.MAX_VALUE;
+            options.experimentLimit = Integer.MAX_VALUE;
+            if(!solverGiven){
+                options.solverType = SolverType.UNION_TREE;
+            }
+        }
+        if(options.binaryInput && options.inputFile==null){
+            throw new IllegalArgumentException("Binary format can be read from an input file only.");
+        }
+        if(options.servePort>0 && options.inputFile!=null){
+            throw new IllegalArgumentException("Server mode cannot be used with an input file.");
+        }
+        if(options.graphFile!=null && (options.inputFile!=null || options.servePort>0)){
+            throw new IllegalArgumentException("Graph file cannot be used with an input file or server mode.");
+        }
+        if(options.roundThreads>0 && options.solverType!=SolverType.COMPACT_UNION_GRAPH){
+            throw new IllegalArgumentException("Parallel rounds can be used with compact_union_graph solver only.");
+        }
+        if(options.cacheCapacity>0 && options.solverType!=SolverType.UNION_TREE){
+            //Simulation engines break ties by city ids, so same shapes with different labels may differ in result.
+            throw new IllegalArgumentException("Cache can be used with union_tree solver only.");
+        }
+        return options;
+    }
+
+    private static String valueOf(String arg){
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static SolverType parseSolverType(String value){
+        try {
+            return SolverType.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Unknown solver: %s", value));
+        }
+    }
+
+    private static int parsePositive(String arg){
+        try {
+            int value = Integer.parseInt(valueOf(arg));
+            if(value>0){
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            //Reported below.
+        }
+        throw new IllegalArgumentException(String.format("Positive integer expected: %s", arg));
+    }
+
+    /**
+     * Gets solver engine.
+     * @return Solver type.
+     */
+    public SolverType getSolverType(){
+        return solverType;
+    }
+
+    /**
+     * Gets maximum number of cities per experiment.
+     * @return City limit.
+     */
+    public int getCityLimit(){
+        return cityLimit;
+    }
+
+    /**
+     * Gets maximum experiment number (exclusive).
+     * @return Experiment limit.
+     */
+    public int getExperimentLimit(){
+        return experimentLimit;
+    }
+
+    /**
+     * Gets number of threads experiments are solved by.
+     * @return Number of workers.
+     */
+    public int getWorkers(){
+        return workers;
+    }
+
+    /**
+     * Gets upper limit of total number of cities of experiments in flight.
+     * @return Number of cities.
+     */
+    public int getMaxInFlightCities(){
+        return maxInFlightCities;
+    }
+
+    /**
+     * Gets file experiments are read from.
+     * @return File path, null for stdin.
+     */
+    public String getInputFile(){
+        return inputFile;
+    }
+
+    /**
+     * Gets maximum number of tree shapes whose results are cached.
+     * @return Cache capacity, 0 if cache is disabled.
+     */
+    public int getCacheCapacity(){
+        return cacheCapacity;
+    }
+
+    /**
+     * Gets where measurements of experiments are reported.
+     * @return "json", "jmx", or null if metrics are disabled.
+     */
+    public String getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Checks if input file is in binary format.
+     * @return True for binary format, false for text.
+     */
+    public boolean isBinaryInput(){
+        return binaryInput;
+    }
+
+    /**
+     * Gets port experiments are served on.
+     * @return Port number, 0 if experiments are read from input instead.
+     */
+    public int getServePort(){
+        return servePort;
+    }
+
+    /**
+     * Gets number of threads large unification rounds are run by.
+     * @return Number of threads, 0 if rounds are run by the thread solving the experiment.
+     */
+    public int getRoundThreads(){
+        return roundThreads;
+    }
+
+    /**
+     * Gets path of the prepared graph file to solve.
+     * @return File path, null if experiments are read from a batch.
+     */
+    public String getGraphFile(){
+        return graphFile;
+    }
+
+    /**
+     * Gets when buffered results are written out.
+     * @return Flush policy.
+     */
+    public ResultWriter.FlushPolicy getFlushPolicy(){
+        return flushPolicy;
+    }
+}
@@ -1,85 +1,288 @@
 package com.sony.bytelandassessment;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import com.sony.bytelandassessment.cache.ResultCache;
+import com.sony.bytelandassessment.exceptions.WrongInputException;
+import com.sony.bytelandassessment.io.BinaryBatchFile;
+import com.sony.bytelandassessment.io.GraphFile;
+import com.sony.bytelandassessment.io.IntTokenizer;
+import com.sony.bytelandassessment.io.MappedExperimentFile;
+import com.sony.bytelandassessment.io.ResultWriter;
+import com.sony.bytelandassessment.metrics.ExperimentRecord;
+import com.sony.bytelandassessment.metrics.JmxReporter;
+import com.sony.bytelandassessment.metrics.JsonLinesReporter;
+import com.sony.bytelandassessment.metrics.MetricsReporter;
+import com.sony.bytelandassessment.server.SolverServer;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Solution of Byteland Union problem.
  * @author Mehmet Öztürk
  */
 public class Main {
+
     /**
-     * Maximum experiment number.
+     * Solves experiments of a memory-mapped batch file.
+     * @param options Command line options.
+     * @param runner Batch runner.
+     * @param resultCache Result cache, null if disabled.
+     * @param metricsReporter Metrics reporter, null if disabled.
+     * @throws Exception
      */
-    private static Integer EXPERIMENT_LIMIT = 1000;
+    private static void runFile(CommandLineOptions options, BatchRunner runner, ResultCache resultCache,
+                                MetricsReporter metricsReporter) throws Exception{
+        MappedExperimentFile file = null;
+        try {
+            file = MappedExperimentFile.open(Paths.get(options.getInputFile()));
+        }
+        catch (WrongInputException e){
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        int numOfExperiment = file.getExperimentCount();
+        int wanted = numOfExperiment;
+        try {
+            //Checking if experiment number is less than the limit (1000 by default)
+            if(numOfExperiment>=options.getExperimentLimit()){
+                System.err.println(String.format("com.sony.bytelandassessment.BytelandUnionExperiment number should be less than %s!", options.getExperimentLimit()) );
+                System.exit(1);
+            }
+            //Failed experiments are not counted, so following experiments of the file are solved in place of them.
+            int first = 0;
+            while(wanted>0 && first<file.getIndexedExperimentCount()){
+                int count = Math.min(wanted, file.getIndexedExperimentCount() - first);
+                wanted -= count - runner.runFile(file, first, count, options.getCityLimit(),
+                        options.getSolverType(), resultCache, metricsReporter);
+                first += count;
+            }
+        }
+        finally {
+            runner.finish();//Results queued so far are written out even if solving failed.
+            file.close();
+        }
+        if(wanted>0){
+            System.err.println("Unexpected end of input.");
+        }
+    }
 
     /**
-     * Gets integer value from specified BufferedReader object.
-     * @param reader Stream object.
-     * @return Parsed integer value.
-     * @throws IOException
+     * Solves experiments of a binary batch file. Parent links are copied in bulk, nothing is parsed.
+     * Like other inputs, a failed experiment is reported in its place and not counted. A binary file holds as many
+     * experiments as it declares, so nothing can be solved in place of a failed one and input is reported as ended.
+     * @param options Command line options.
+     * @param runner Batch runner.
+     * @param resultCache Result cache, null if disabled.
+     * @param metricsReporter Metrics reporter, null if disabled.
+     * @throws Exception
      */
-    private static Integer getInteger(BufferedReader reader) throws IOException{
-        Integer result=null;
-        while(result==null) {
-            try {
-                result = Integer.parseInt(reader.readLine().trim());
-            } catch (NumberFormatException e) {
-                throw new NumberFormatException("You should feed integer for this input.");
+    private static void runBinaryFile(CommandLineOptions options, BatchRunner runner, ResultCache resultCache,
+                                      MetricsReporter metricsReporter) throws Exception{
+        BinaryBatchFile file = null;
+        try {
+            file = BinaryBatchFile.open(Paths.get(options.getInputFile()));
+        }
+        catch (WrongInputException e){
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        int numOfExperiment = file.getExperimentCount();
+        int succeeded = 0;
+        try {
+            //Checking if experiment number is less than the limit (1000 by default)
+            if(numOfExperiment>=options.getExperimentLimit()){
+                System.err.println(String.format("com.sony.bytelandassessment.BytelandUnionExperiment number should be less than %s!", options.getExperimentLimit()) );
+                System.exit(1);
+            }
+            for(int index=0; index<numOfExperiment; index++){
+                try {
+                    int numOfCities = file.getNumOfCities(index);
+                    BytelandUnionExperiment bytelandUnionExperiment =
+                            new BytelandUnionExperiment(numOfCities, options.getCityLimit());
+                    int[] parents = runner.acquireBuffer(numOfCities-1);
+                    long start = System.nanoTime();
+                    int length = file.readParents(index, parents);
+                    prepare(bytelandUnionExperiment, options, resultCache, metricsReporter, index,
+                            System.nanoTime() - start);
+                    bytelandUnionExperiment.setAdjacencyMatrix(parents, length);
+                    runner.submit(index, bytelandUnionExperiment);
+                }
+                catch (WrongInputException e){
+                    runner.reject(index, BatchRunner.messageOf(e));
+                }
             }
+            succeeded = runner.countSucceeded(numOfExperiment);
+        }
+        finally {
+            runner.finish();
+            file.close();
+        }
+        if(succeeded<numOfExperiment){
+            System.err.println("Unexpected end of input.");
+        }
+    }
+
+    /**
+     * Solves the single experiment of a prepared graph file and prints its step number.
+     * @param options Command line options.
+     * @param metricsReporter Metrics reporter, null if disabled.
+     * @throws Exception
+     */
+    private static void runGraphFile(CommandLineOptions options, MetricsReporter metricsReporter) throws Exception{
+        GraphFile file = null;
+        try {
+            file = GraphFile.open(Paths.get(options.getGraphFile()));
+        }
+        catch (WrongInputException e){
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        try {
+            BytelandUnionExperiment bytelandUnionExperiment =
+                    new BytelandUnionExperiment(file.getNumOfCities(), options.getCityLimit());
+            prepare(bytelandUnionExperiment, options, null, metricsReporter, 0, 0);
+            bytelandUnionExperiment.setAdjacencyMatrix(file);
+            System.out.println(bytelandUnionExperiment.calculateMinUnionCount());
+        }
+        catch (Exception e){
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        finally {
+            file.close();
         }
-        return result;
     }
 
     /**
-     * Gets a line of string from specified BufferedReader object
-     * @param reader
-     * @return Line of string
-     * @throws IOException
+     * Applies options to an experiment whose parent links are read.
      */
-    private static String getString(BufferedReader reader) throws IOException{
-        String result=null;
-        while(result==null) {
-                result = reader.readLine();
+    private static void prepare(BytelandUnionExperiment experiment, CommandLineOptions options,
+                                ResultCache resultCache, MetricsReporter metricsReporter, int index, long parseNanos){
+        if(metricsReporter!=null){
+            ExperimentRecord record = new ExperimentRecord(metricsReporter, index, experiment.getNumOfCities());
+            record.parsed(parseNanos);
+            experiment.setMetrics(record);
         }
-        return result.trim();
+        experiment.setSolverType(options.getSolverType());
+        experiment.setResultCache(resultCache);
     }
 
     public static void main(String[] args) throws Exception{
+        CommandLineOptions options = null;
+        try {
+            options = CommandLineOptions.parse(args);
+        }
+        catch (IllegalArgumentException e){
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        if(options.getServePort()>0){
+            ResultCache resultCache = options.getCacheCapacity()>0 ? new ResultCache(options.getCacheCapacity()) : null;
+            SolverServer server = new SolverServer(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), options.getServePort()),
+                    options.getWorkers(), options.getCityLimit(), options.getSolverType(), resultCache);
+            System.err.println(String.format("Serving on port %s", server.getPort()));
+            server.run();
+            return;
+        }
+
+        //Results are written to stdout and stderr channels by the writer thread, see ResultWriter.
+        ResultWriter writer = new ResultWriter(new FileOutputStream(FileDescriptor.out).getChannel(),
+                new FileOutputStream(FileDescriptor.err).getChannel(), ResultWriter.DEFAULT_CAPACITY,
+                options.getFlushPolicy());
+        BatchRunner runner = new BatchRunner(options.getWorkers(), options.getMaxInFlightCities(), writer);
+        if(options.getRoundThreads()>0){
+            runner.setRoundPool(new ForkJoinPool(options.getRoundThreads()));
+        }
+        ResultCache resultCache = options.getCacheCapacity()>0 ? new ResultCache(options.getCacheCapacity()) : null;
+        MetricsReporter metricsReporter = createMetricsReporter(options);
+        if(options.getGraphFile()!=null){
+            runGraphFile(options, metricsReporter);
+            return;
+        }
+        if(options.isBinaryInput()){
+            runBinaryFile(options, runner, resultCache, metricsReporter);
+            printCacheStatistics(resultCache);
+            return;
+        }
+        if(options.getInputFile()!=null){
+            runFile(options, runner, resultCache, metricsReporter);
+            printCacheStatistics(resultCache);
+            return;
+        }
+        //Values are parsed straight from stdin bytes.
+        IntTokenizer tokenizer = new IntTokenizer(System.in);
         //Getting number of experiment
         int numOfExperiment=0;
         try {
-            numOfExperiment=getInteger(reader);
+            numOfExperiment=tokenizer.nextInt();
         }
-        catch (NumberFormatException e){
-            System.err.println(e.getMessage());
+        catch (WrongInputException e){
+            System.err.println("You should feed integer for this input.");
         }
 
-        //Checking if experiment number is less than 1000
-        if(numOfExperiment>=EXPERIMENT_LIMIT){
-            System.err.println(String.format("com.sony.bytelandassessment.BytelandUnionExperiment number should be less than %s!", EXPERIMENT_LIMIT) );
+        //Checking if experiment number is less than the limit (1000 by default)
+        if(numOfExperiment>=options.getExperimentLimit()){
+            System.err.println(String.format("com.sony.bytelandassessment.BytelandUnionExperiment number should be less than %s!", options.getExperimentLimit()) );
             System.exit(1);
         }
         //Getting experiment values
-        int num = 0;
-        while(num<numOfExperiment){
-            //Getting number of cities
-            int numOfCities=getInteger(reader);
-            try{
-                BytelandUnionExperiment bytelandUnionExperiment = new BytelandUnionExperiment(numOfCities);
-                bytelandUnionExperiment.setAdjacencyMatrix(getString(reader).trim());
-                System.out.println(bytelandUnionExperiment.calculateMinUnionCount());//Output of minimum step for unification
-            }
-            catch (Exception e){
-                System.err.println(e.getMessage());
-                continue;
+        int index = 0;//Index of experiment in input, counting rejected ones too.
+        try {
+            //Failed experiments are not counted, so another experiment is read in place of each of them.
+            while(runner.countSucceeded(numOfExperiment)<numOfExperiment){
+                //Getting number of cities
+                int numOfCities=tokenizer.nextInt();
+                index++;
+                try{
+                    BytelandUnionExperiment bytelandUnionExperiment;
+                    try {
+                        bytelandUnionExperiment = new BytelandUnionExperiment(numOfCities, options.getCityLimit());
+                    }
+                    catch (WrongInputException e){
+                        tokenizer.skipNextLine();//Parent links of rejected experiment.
+                        throw e;
+                    }
+                    int[] parents = runner.acquireBuffer(numOfCities-1);
+                    long start = System.nanoTime();
+                    int length = tokenizer.readLine(parents);
+                    prepare(bytelandUnionExperiment, options, resultCache, metricsReporter, index - 1,
+                            System.nanoTime() - start);
+                    bytelandUnionExperiment.setAdjacencyMatrix(parents, length);
+                    runner.submit(index - 1, bytelandUnionExperiment);
+                }
+                catch (Exception e){
+                    runner.reject(index - 1, BatchRunner.messageOf(e));
+                }
             }
+        }
+        finally {
+            runner.finish();//Results queued so far are written out even if input ends early.
+        }
+        printCacheStatistics(resultCache);
+    }
 
-            num++;
+    private static MetricsReporter createMetricsReporter(CommandLineOptions options) throws Exception{
+        if("json".equals(options.getMetrics())){
+            return new JsonLinesReporter(System.err);
+        }
+        if("jmx".equals(options.getMetrics())){
+            JmxReporter reporter = new JmxReporter();
+            reporter.register();
+            return reporter;
+        }
+        return null;
+    }
 
+    private static void printCacheStatistics(ResultCache resultCache){
+        if(resultCache!=null){
+            System.err.println(String.format("Cache hits: %s, misses: %s, evictions: %s",
+                    resultCache.getHits(), resultCache.getMisses(), resultCache.getEvictions()));
         }
     }
 
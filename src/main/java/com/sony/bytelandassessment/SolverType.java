@@ -0,0 +1,27 @@
+package com.sony.bytelandassessment;
+
+/**
+ * Solver engines which can be selected for BytelandUnionExperiment.
+ */
+public enum SolverType {
+    /**
+     * Round by round simulation over Node and Relation objects (UnionGraph). Nodes are visited and ties are resolved
+     * in ascending node id.
+     */
+    UNION_GRAPH,
+    /**
+     * Round by round simulation over primitive adjacency arrays (CompactUnionGraph). Nodes are visited and ties are
+     * resolved in ascending node id, so step numbers are the ones of UNION_GRAPH.
+     */
+    COMPACT_UNION_GRAPH,
+    /**
+     * Step by step simulation in the order of COMPACT_UNION_GRAPH, merged nodes are kept in a disjoint-set forest
+     * (DisjointSetUnionGraph).
+     */
+    DISJOINT_SET_UNION_GRAPH,
+    /**
+     * Single bottom-up pass over the tree which computes the exact minimum (UnionTree).
+     * Works only for trees, which is always the case for inputs given by parent links.
+     */
+    UNION_TREE
+}
@@ -0,0 +1,62 @@
+package com.sony.bytelandassessment;
+
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import com.sony.bytelandassessment.generator.TreeShape;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Training run of the command line, used to dump a class-data-sharing archive (appcds profile of the build):
+ *      java -XX:ArchiveClassesAtExit=app.jsa -cp byteland-assessment-maven.jar com.sony.bytelandassessment.TrainingRun
+ *
+ * Generated batches of every tree shape are fed to Main through stdin once for every solver engine and once with
+ * workers, so the archive holds the classes a real launch loads, from option parsing to the result writer.
+ * Results are printed to stdout like any other batch and can be thrown away.
+ */
+public class TrainingRun {
+    private static final int EXPERIMENTS_PER_SHAPE = 40;
+    private static final int MAX_CITIES = 600;
+
+    private static final String[][] LAUNCHES = {
+            {},
+            {"--solver=compact_union_graph"},
+            {"--solver=disjoint_set_union_graph"},
+            {"--large"},
+            {"--workers=2"}
+    };
+
+    /**
+     * Builds a batch in input fashion out of generated experiments of every tree shape.
+     * @param seed Seed.
+     * @return Batch text.
+     */
+    public static String generateBatch(long seed){
+        StringBuilder batch = new StringBuilder();
+        batch.append(TreeShape.values().length*EXPERIMENTS_PER_SHAPE).append('\n');
+        for(TreeShape shape: TreeShape.values()){
+            ExperimentGenerator generator = new ExperimentGenerator(shape, seed + shape.ordinal(), true);
+            for(int i=0; i<EXPERIMENTS_PER_SHAPE; i++){
+                //Mostly small experiments, like the launches being trained for, a few up to the default limit.
+                int numOfCities = 2 + (i*i*7)%(MAX_CITIES - 1);
+                batch.append(numOfCities).append('\n');
+                batch.append(generator.nextExperiment(numOfCities)).append('\n');
+            }
+        }
+        return batch.toString();
+    }
+
+    public static void main(String[] args) throws Exception{
+        InputStream stdin = System.in;
+        try {
+            for(int i=0; i<LAUNCHES.length; i++){
+                System.setIn(new ByteArrayInputStream(generateBatch(i).getBytes(StandardCharsets.US_ASCII)));
+                Main.main(LAUNCHES[i]);
+            }
+        }
+        finally {
+            System.setIn(stdin);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.sony.bytelandassessment.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of minimum step numbers keyed by tree shape, least recently used entry is evicted first.
+ * It is safe to share between threads.
+ */
+public class ResultCache {
+    private final int capacity;
+    private final LinkedHashMap<TreeKey, Integer> entries;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Creates cache.
+     * @param capacity Maximum number of entries.
+     */
+    public ResultCache(final int capacity){
+        if(capacity<1){
+            throw new IllegalArgumentException("Cache capacity should be positive.");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<TreeKey, Integer>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TreeKey, Integer> eldest) {
+                if(size()>ResultCache.this.capacity){
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets cached step number of given tree shape, counting a hit or a miss.
+     * @param key Tree key.
+     * @return Step number, null if it is not cached.
+     */
+    public synchronized Integer get(TreeKey key){
+        Integer value = entries.get(key);
+        if(value==null){
+            misses++;
+        }
+        else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Caches step number of given tree shape.
+     * @param key Tree key.
+     * @param stepNumber Step number.
+     */
+    public synchronized void put(TreeKey key, int stepNumber){
+        entries.put(key, stepNumber);
+    }
+
+    /**
+     * Gets maximum number of entries.
+     * @return Capacity.
+     */
+    public int getCapacity(){
+        return capacity;
+    }
+
+    /**
+     * Gets number of entries.
+     * @return Number of entries.
+     */
+    public synchronized int getSize(){
+        return entries.size();
+    }
+
+    /**
+     * Gets number of lookups which found a cached step number.
+     * @return Hit count.
+     */
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    /**
+     * Gets number of lookups which did not find a cached step number.
+     * @return Miss count.
+     */
+    public synchronized long getMisses(){
+        return misses;
+    }
+
+    /**
+     * Gets number of entries evicted to keep the cache within its capacity.
+     * @return Eviction count.
+     */
+    public synchronized long getEvictions(){
+        return evictions;
+    }
+}
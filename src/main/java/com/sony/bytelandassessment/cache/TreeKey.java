@@ -0,0 +1,129 @@
+package com.sony.bytelandassessment.cache;
+
+import com.sony.bytelandassessment.datastructure.AdjacencyArrays;
+import com.sony.bytelandassessment.exceptions.LogicViolationException;
+
+import java.util.Arrays;
+
+/**
+ * Canonical key of a tree rooted at node 0, which is the same for every labelling of cities other than 0.
+ * Every subtree is hashed from the multiset of hashes of its child subtrees, so order of children does not matter.
+ * Two independent 64 bit hashes are kept together with number of nodes, which makes collisions negligible.
+ */
+public final class TreeKey {
+    private final int nodeCount;
+    private final long firstHash;
+    private final long secondHash;
+
+    private TreeKey(int nodeCount, long firstHash, long secondHash){
+        this.nodeCount = nodeCount;
+        this.firstHash = firstHash;
+        this.secondHash = secondHash;
+    }
+
+    /**
+     * Computes key of the tree given by parent links: city (i+1) is connected to city parents[i].
+     * @param parents Parent links.
+     * @param numOfCities Number of cities, parents should hold at least (numOfCities-1) values.
+     * @return Key, null if parent links do not form a tree.
+     */
+    public static TreeKey of(int[] parents, int numOfCities){
+        int[] rootedParents = parents;
+        int[] order = null;//Null when every city is linked to a city with smaller id, ids are top-down order then.
+        for(int i=0; i<numOfCities-1; i++){
+            if(parents[i]<0 || parents[i]>i){
+                rootedParents = null;
+                break;
+            }
+        }
+        if(rootedParents==null){
+            try {
+                AdjacencyArrays adjacency = AdjacencyArrays.fromParents(parents, numOfCities);
+                if(adjacency.getRelationCount()!=numOfCities-1){
+                    return null;
+                }
+                order = new int[numOfCities];
+                rootedParents = new int[numOfCities];
+                if(!root(adjacency, order, rootedParents)){
+                    return null;
+                }
+            }
+            catch (LogicViolationException e){
+                return null;
+            }
+        }
+        long[] first = new long[numOfCities];
+        long[] second = new long[numOfCities];
+        for(int i=numOfCities-1; i>=0; i--){
+            int node = order==null ? i : order[i];
+            long firstValue = mix(first[node] + 0x9E3779B97F4A7C15L);
+            long secondValue = mix(second[node]*0xFF51AFD7ED558CCDL + 0xC2B2AE3D27D4EB4FL);
+            if(node==0){
+                return new TreeKey(numOfCities, firstValue, secondValue);
+            }
+            //Parent of node is rootedParents[node] in BFS order, parents[node-1] when ids are top-down.
+            int parent = order==null ? rootedParents[node-1] : rootedParents[node];
+            //Sums do not depend on order of children.
+            first[parent] += mix(firstValue);
+            second[parent] += mix(secondValue ^ 0x2545F4914F6CDD1DL);
+        }
+        return null;
+    }
+
+    /**
+     * Roots given tree at node 0 by a breadth first search.
+     * @return False if tree is disconnected.
+     */
+    private static boolean root(AdjacencyArrays adjacency, int[] order, int[] rootedParents){
+        int[] offsets = adjacency.getOffsets();
+        int[] targets = adjacency.getTargets();
+        Arrays.fill(rootedParents, -2);
+        rootedParents[0] = -1;
+        int tail = 1;
+        for(int head=0; head<tail; head++){
+            int node = order[head];
+            for(int k=offsets[node]; k<offsets[node+1]; k++){
+                int neighbour = targets[k];
+                if(rootedParents[neighbour]==-2){
+                    rootedParents[neighbour] = node;
+                    order[tail++] = neighbour;
+                }
+            }
+        }
+        return tail==order.length;
+    }
+
+    /**
+     * Finalizer of SplitMix64, spreads every input bit over the whole value.
+     */
+    private static long mix(long value){
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Gets number of nodes of the tree.
+     * @return Number of nodes.
+     */
+    public int getNodeCount(){
+        return nodeCount;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if(this==other){
+            return true;
+        }
+        if(!(other instanceof TreeKey)){
+            return false;
+        }
+        TreeKey key = (TreeKey) other;
+        return nodeCount==key.nodeCount && firstHash==key.firstHash && secondHash==key.secondHash;
+    }
+
+    @Override
+    public int hashCode(){
+        return (int)(firstHash ^ (firstHash >>> 32));
+    }
+}
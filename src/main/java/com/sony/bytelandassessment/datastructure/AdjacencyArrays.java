@@ -0,0 +1,189 @@
+package com.sony.bytelandassessment.datastructure;
+
+import com.sony.bytelandassessment.exceptions.LogicViolationException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Undirected neighbourhood kept in compact primitive arrays (CSR fashion):
+ *      neighbours of node i are targets[offsets[i]] ... targets[offsets[i+1]-1]
+ * Loops and duplicate relations are dropped while building, so every row holds distinct neighbours.
+ */
+public class AdjacencyArrays {
+    private final int nodeCount;
+    private final int[] offsets;
+    private final int[] targets;
+
+    private AdjacencyArrays(int nodeCount, int[] offsets, int[] targets){
+        this.nodeCount = nodeCount;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Builds adjacency arrays from adjacency matrix in the fashion UnionGraph uses:
+     *      [ [1, 2], [0, 2], [0, 1] ]
+     * Relations are treated as undirected.
+     * @param adjacencyMatrix Adjacency matrix.
+     * @return Adjacency arrays.
+     * @throws LogicViolationException
+     */
+    public static AdjacencyArrays fromMatrix(List<List<Integer>> adjacencyMatrix) throws LogicViolationException{
+        return fromMatrix(adjacencyMatrix, new SolverContext());
+    }
+
+    /**
+     * Builds adjacency arrays from adjacency matrix in arrays of given context.
+     * @param adjacencyMatrix Adjacency matrix.
+     * @param context Solver context.
+     * @return Adjacency arrays.
+     * @throws LogicViolationException
+     */
+    public static AdjacencyArrays fromMatrix(List<List<Integer>> adjacencyMatrix, SolverContext context)
+            throws LogicViolationException{
+        if(adjacencyMatrix==null){
+            throw new NullPointerException("Adjacency matrix is not set yet.");
+        }
+        int size = adjacencyMatrix.size();
+        int[] degrees = context.ints(SolverContext.ADJACENCY_OFFSETS, size + 1);
+        Arrays.fill(degrees, 0, size + 1, 0);
+        for(int i=0; i<size; i++){
+            for(Integer second: adjacencyMatrix.get(i)){
+                checkBounds(second, size);
+                if(second!=i){
+                    degrees[i]++;
+                    degrees[second]++;
+                }
+            }
+        }
+        int[] offsets = toOffsets(degrees, size);
+        int[] targets = context.ints(SolverContext.ADJACENCY_TARGETS, offsets[size]);
+        int[] cursor = context.ints(SolverContext.ADJACENCY_CURSOR, size);
+        System.arraycopy(offsets, 0, cursor, 0, size);
+        for(int i=0; i<size; i++){
+            for(Integer second: adjacencyMatrix.get(i)){
+                if(second!=i){
+                    targets[cursor[i]++] = second;
+                    targets[cursor[second]++] = i;
+                }
+            }
+        }
+        return compact(size, offsets, targets, context);
+    }
+
+    /**
+     * Builds adjacency arrays from parent links, which is the fashion experiments are given:
+     * city (i+1) is connected to city parents[i].
+     * @param parents Parent links.
+     * @param numOfCities Number of cities, parents should hold at least (numOfCities-1) values.
+     * @return Adjacency arrays.
+     * @throws LogicViolationException
+     */
+    public static AdjacencyArrays fromParents(int[] parents, int numOfCities) throws LogicViolationException{
+        return fromParents(parents, numOfCities, new SolverContext());
+    }
+
+    /**
+     * Builds adjacency arrays from parent links in arrays of given context.
+     * @param parents Parent links.
+     * @param numOfCities Number of cities, parents should hold at least (numOfCities-1) values.
+     * @param context Solver context.
+     * @return Adjacency arrays.
+     * @throws LogicViolationException
+     */
+    public static AdjacencyArrays fromParents(int[] parents, int numOfCities, SolverContext context)
+            throws LogicViolationException{
+        int[] degrees = context.ints(SolverContext.ADJACENCY_OFFSETS, numOfCities + 1);
+        Arrays.fill(degrees, 0, numOfCities + 1, 0);
+        for(int i=0; i<numOfCities-1; i++){
+            checkBounds(parents[i], numOfCities);
+            if(parents[i]!=i+1){
+                degrees[i+1]++;
+                degrees[parents[i]]++;
+            }
+        }
+        int[] offsets = toOffsets(degrees, numOfCities);
+        int[] targets = context.ints(SolverContext.ADJACENCY_TARGETS, offsets[numOfCities]);
+        int[] cursor = context.ints(SolverContext.ADJACENCY_CURSOR, numOfCities);
+        System.arraycopy(offsets, 0, cursor, 0, numOfCities);
+        for(int i=0; i<numOfCities-1; i++){
+            int city = i+1;
+            if(parents[i]!=city){
+                targets[cursor[city]++] = parents[i];
+                targets[cursor[parents[i]]++] = city;
+            }
+        }
+        return compact(numOfCities, offsets, targets, context);
+    }
+
+    private static void checkBounds(int nodeId, int size) throws LogicViolationException{
+        if(nodeId<0 || nodeId>=size){
+            throw new LogicViolationException(String.format("Node %s is out of graph bounds.", nodeId));
+        }
+    }
+
+    private static int[] toOffsets(int[] degrees, int size){
+        //Degrees are turned into offsets in place, one extra slot keeps the end of the last row.
+        int sum = 0;
+        for(int i=0; i<=size; i++){
+            int degree = degrees[i];
+            degrees[i] = sum;
+            sum += degree;
+        }
+        return degrees;
+    }
+
+    private static AdjacencyArrays compact(int size, int[] offsets, int[] targets, SolverContext context){
+        //Duplicate relations are removed in place.
+        int[] stamp = context.ints(SolverContext.ADJACENCY_STAMP, size);
+        Arrays.fill(stamp, 0, size, -1);
+        int write = 0;
+        for(int i=0; i<size; i++){
+            int start = offsets[i];
+            int end = offsets[i+1];
+            offsets[i] = write;
+            for(int k=start; k<end; k++){
+                int neighbour = targets[k];
+                if(stamp[neighbour]!=i){
+                    stamp[neighbour] = i;
+                    targets[write++] = neighbour;
+                }
+            }
+        }
+        offsets[size] = write;
+        return new AdjacencyArrays(size, offsets, targets);
+    }
+
+    /**
+     * Gets number of nodes.
+     * @return Number of nodes.
+     */
+    public int getNodeCount(){
+        return this.nodeCount;
+    }
+
+    /**
+     * Gets number of undirected relations.
+     * @return Number of relations.
+     */
+    public int getRelationCount(){
+        return this.offsets[this.nodeCount]/2;
+    }
+
+    /**
+     * Gets row offsets, neighbours of node i start at offsets[i] and end before offsets[i+1].
+     * @return Offsets array, only the first (getNodeCount()+1) values are meaningful.
+     */
+    public int[] getOffsets(){
+        return this.offsets;
+    }
+
+    /**
+     * Gets neighbour ids of all rows.
+     * @return Targets array, only the first offsets[getNodeCount()] values are meaningful.
+     */
+    public int[] getTargets(){
+        return this.targets;
+    }
+}
@@ -0,0 +1,578 @@
+package com.sony.bytelandassessment.datastructure;
+
+import com.sony.bytelandassessment.exceptions.LogicViolationException;
+import com.sony.bytelandassessment.exceptions.NotUnifiableException;
+import com.sony.bytelandassessment.metrics.SolverMetrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Graph object which calculates minimum number of steps needed to unite all nodes in a graph.
+ * It follows the unification rules of UnionGraph set to visit nodes and resolve ties in ascending node id
+ * (UnionGraph.BY_NODE_ID), but neighbourhood is kept in compact primitive arrays (CSR fashion) instead of Node and
+ * Relation objects:
+ *      neighbours of node i are targets[offsets[i]] ... targets[offsets[i+1]-1]
+ * Pairs are found on the arrays of the round start and contracted when the round ends. UnionGraph merges a pair as
+ * soon as it is found, so a node linked to both nodes of the pair has one relation less for the rest of the round;
+ * such relations are counted while pairs are found (a tree has none). Neighbour access is O(degree) and a whole
+ * unification round is O(V+E).
+ *
+ * Rounds of large trees can be run by a fork/join pool, see setParallelPool. Parallel rounds find the same pairs as
+ * sequential ones, so step numbers do not depend on the mode. Rounds of graphs with cycles are run on the calling
+ * thread, since a pair found there can change degrees of nodes anywhere after it.
+ */
+public class CompactUnionGraph {
+    /*
+    Rounds with fewer nodes are not worth splitting. Matching decides nodes in windows, which grow while most of
+    their nodes can be decided at once.
+     */
+    private static final int PARALLEL_MIN_NODES = 1 << 14;
+    private static final int PARALLEL_MIN_WINDOW = 1 << 11;
+    private static final int PARALLEL_MAX_WINDOW = 1 << 20;
+    private static final int PARALLEL_GRAIN = 1 << 9;
+
+    private int unificationStep = 0;
+    private int nodeCount;
+    private int relationCount;
+    private int[] nodeValues;//Original node id of every compact index, kept in ascending order.
+    private int[] offsets;
+    private int[] targets;
+    private SolverMetrics metrics = SolverMetrics.NO_OP;
+    private final SolverContext context;
+    private ForkJoinPool pool;
+
+    /*
+    Working buffers reused by every round.
+     */
+    private int[] nextNodeValues;
+    private int[] nextOffsets;
+    private int[] nextTargets;
+    private int[] partner;
+    private int[] newIndex;
+    private int[] stamp;
+    private int[] lost;//Relations every node lost to pairs found so far in the round, null for trees.
+    private int[] decided;//Round in which match of every node is decided, parallel rounds only.
+    private int[] choice;//Decision taken for every node of a window, parallel rounds only.
+
+    /**
+     * Creates new CompactUnionGraph object with given adjacency matrix.
+     * @param adjacencyMatrix Adjacency matrix in the same fashion UnionGraph uses:
+     *                               [ [1, 2], [0, 2], [0, 1] ]
+     *                        Loops and duplicate relations are ignored, relations are treated as undirected.
+     * @throws LogicViolationException
+     */
+    public CompactUnionGraph(List<List<Integer>> adjacencyMatrix) throws LogicViolationException{
+        this(adjacencyMatrix, new SolverContext());
+    }
+
+    /**
+     * Creates new CompactUnionGraph object with given adjacency matrix, working in arrays of given context.
+     * @param adjacencyMatrix Adjacency matrix.
+     * @param context Solver context.
+     * @throws LogicViolationException
+     */
+    public CompactUnionGraph(List<List<Integer>> adjacencyMatrix, SolverContext context) throws LogicViolationException{
+        this(AdjacencyArrays.fromMatrix(adjacencyMatrix, context), context);
+    }
+
+    /**
+     * Creates new CompactUnionGraph object from parent links, which is the fashion experiments are given:
+     * city (i+1) is connected to city parents[i].
+     * @param parents Parent links.
+     * @param numOfCities Number of cities, parents should hold at least (numOfCities-1) values.
+     * @throws LogicViolationException
+     */
+    public CompactUnionGraph(int[] parents, int numOfCities) throws LogicViolationException{
+        this(parents, numOfCities, new SolverContext());
+    }
+
+    /**
+     * Creates new CompactUnionGraph object from parent links, working in arrays of given context.
+     * @param parents Parent links.
+     * @param numOfCities Number of cities, parents should hold at least (numOfCities-1) values.
+     * @param context Solver context.
+     * @throws LogicViolationException
+     */
+    public CompactUnionGraph(int[] parents, int numOfCities, SolverContext context) throws LogicViolationException{
+        this(AdjacencyArrays.fromParents(parents, numOfCities, context), context);
+    }
+
+    /**
+     * Creates new CompactUnionGraph object over given adjacency arrays. Arrays are modified by unification.
+     * @param adjacency Adjacency arrays.
+     */
+    public CompactUnionGraph(AdjacencyArrays adjacency){
+        this(adjacency, new SolverContext());
+    }
+
+    /**
+     * Creates new CompactUnionGraph object over given adjacency arrays, working buffers are taken from given context.
+     * Arrays are modified by unification.
+     * @param adjacency Adjacency arrays.
+     * @param context Solver context.
+     */
+    public CompactUnionGraph(AdjacencyArrays adjacency, SolverContext context){
+        int size = adjacency.getNodeCount();
+        this.context = context;
+        this.nodeCount = size;
+        this.offsets = adjacency.getOffsets();
+        this.targets = adjacency.getTargets();
+        this.relationCount = adjacency.getRelationCount();
+        this.nodeValues = context.ints(SolverContext.GRAPH_NODE_VALUES, size);
+        for(int i=0; i<size; i++){
+            this.nodeValues[i] = i;
+        }
+        this.partner = context.ints(SolverContext.GRAPH_PARTNER, size);
+        this.newIndex = context.ints(SolverContext.GRAPH_NEW_INDEX, size);
+        this.stamp = context.ints(SolverContext.GRAPH_STAMP, size);
+        Arrays.fill(this.stamp, 0, size, -1);
+        this.nextNodeValues = context.ints(SolverContext.GRAPH_NEXT_NODE_VALUES, size);
+        this.nextOffsets = context.ints(SolverContext.GRAPH_NEXT_OFFSETS, size + 1);
+        this.nextTargets = context.ints(SolverContext.GRAPH_NEXT_TARGETS, Math.max(offsets[size], 1));
+        if(relationCount!=size - 1){
+            this.lost = context.ints(SolverContext.GRAPH_LOST, size);
+        }
+    }
+
+    /**
+     * Gets number of nodes in the context.
+     * @return Number of nodes.
+     */
+    public int getNodeCount(){
+        return this.nodeCount;
+    }
+
+    /**
+     * Gets number of relations in the context.
+     * @return Number of relations.
+     */
+    public int getRelationCount(){
+        return this.relationCount;
+    }
+
+    /**
+     * Gets original id of the node stored at given index.
+     * @param index Node index, [0, getNodeCount()).
+     * @return Node id.
+     */
+    public int getNodeValue(int index){
+        return this.nodeValues[index];
+    }
+
+    /**
+     * Gets number of neighbours of the node stored at given index.
+     * @param index Node index, [0, getNodeCount()).
+     * @return Number of neighbours.
+     */
+    public int getDegree(int index){
+        return this.offsets[index+1] - this.offsets[index];
+    }
+
+    /**
+     * Gets a neighbour of the node stored at given index.
+     * @param index Node index, [0, getNodeCount()).
+     * @param neighbourNumber Neighbour number, [0, getDegree(index)).
+     * @return Node index of the neighbour.
+     */
+    public int getNeighbour(int index, int neighbourNumber){
+        return this.targets[this.offsets[index] + neighbourNumber];
+    }
+
+    /**
+     * Sets metrics every unification round is reported to.
+     * @param metrics Metrics, SolverMetrics.NO_OP to disable.
+     */
+    public void setMetrics(SolverMetrics metrics){
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets pool rounds of trees with at least PARALLEL_MIN_NODES nodes are run by. Matching and contraction are split
+     * among its threads; pairs stay the same as in sequential rounds, so step number does not change.
+     * @param pool Fork/join pool, null to run every round on the calling thread.
+     */
+    public void setParallelPool(ForkJoinPool pool){
+        this.pool = pool;
+        if(pool!=null && decided==null){
+            decided = context.ints(SolverContext.GRAPH_DECIDED, nodeCount);
+            Arrays.fill(decided, 0, nodeCount, -1);
+            choice = context.ints(SolverContext.GRAPH_CHOICE, nodeCount);
+        }
+    }
+
+    private int getBestNodeToUnify(int index){
+        /*
+        Cost is calculated respecting to number of relations of neighbour, without the ones it lost in this round.
+        Ties are resolved in favour of the smaller node id.
+         */
+        int minCost = Integer.MAX_VALUE;
+        int nodeWithMinCost = -1;
+        for(int k=offsets[index]; k<offsets[index+1]; k++){
+            int neighbour = targets[k];
+            if(partner[neighbour]<0){
+                int numberOfNeighbours = lost==null ? getDegree(neighbour) : getDegree(neighbour) - lost[neighbour];
+                if(numberOfNeighbours<minCost ||
+                        (numberOfNeighbours==minCost && nodeValues[neighbour]<nodeValues[nodeWithMinCost])){
+                    minCost = numberOfNeighbours;
+                    nodeWithMinCost = neighbour;
+                }
+            }
+        }
+        return nodeWithMinCost;
+    }
+
+    /**
+     * Unifies all nodes respecting to restrictions in Byteland Union problem given in assessment.
+     * @return Minimum number of steps to unify all nodes.
+     * @throws NotUnifiableException
+     */
+    public int unifyAndReturnStepNumber() throws NotUnifiableException{
+        while(nodeCount>1){
+            /*
+            If there is no relation left, and there are multiple nodes, structure is not unifiable.
+             */
+            if(relationCount==0){
+                throw new NotUnifiableException("This structure is not unifiable.");
+            }
+            boolean timed = metrics != SolverMetrics.NO_OP;
+            long start = timed ? System.nanoTime() : 0;
+            /*
+            A graph with (nodes-1) relations which is not a tree is disconnected, and fails in either mode.
+             */
+            boolean parallel = pool != null && nodeCount >= PARALLEL_MIN_NODES && relationCount == nodeCount-1;
+            Arrays.fill(partner, 0, nodeCount, -1);
+            if(lost!=null){
+                Arrays.fill(lost, 0, nodeCount, 0);
+            }
+            if(parallel){
+                matchInParallel();
+            }
+            else {
+                for(int index=0; index<nodeCount; index++){
+                    if(partner[index]<0){
+                        int otherIndex = getBestNodeToUnify(index);
+                        if(otherIndex>=0){
+                            partner[index] = otherIndex;
+                            partner[otherIndex] = index;
+                            if(lost!=null){
+                                loseCommonRelations(index, otherIndex);
+                            }
+                        }
+                    }
+                }
+            }
+            long selected = timed ? System.nanoTime() : 0;
+            int previousCount = nodeCount;
+            /*
+            Rows of a tree never get duplicate neighbours, since contracting its relations keeps it a tree.
+             */
+            if(parallel){
+                contractInParallel();
+            }
+            else {
+                contract();
+            }
+            int merges = previousCount - nodeCount;
+            this.unificationStep++;
+            if(timed){
+                metrics.roundFinished(nodeCount, merges, relationCount, selected - start, System.nanoTime() - selected);
+            }
+        }
+        return this.unificationStep;
+    }
+
+    /**
+     * Counts the relation every free neighbour the matched nodes have in common loses, as merged pair is linked to it
+     * once.
+     */
+    private void loseCommonRelations(int first, int second){
+        for(int k=offsets[second]; k<offsets[second+1]; k++){
+            stamp[targets[k]] = second;
+        }
+        for(int k=offsets[first]; k<offsets[first+1]; k++){
+            int neighbour = targets[k];
+            if(stamp[neighbour]==second && partner[neighbour]<0){
+                lost[neighbour]++;
+            }
+        }
+        for(int k=offsets[second]; k<offsets[second+1]; k++){
+            stamp[targets[k]] = -1;
+        }
+    }
+
+    /**
+     * Merges every matched pair into the node with smaller index and rebuilds the compact arrays.
+     */
+    private void contract(){
+        int nextCount = 0;
+        for(int index=0; index<nodeCount; index++){
+            if(partner[index]<0 || partner[index]>index){
+                newIndex[index] = nextCount;
+                nextNodeValues[nextCount] = nodeValues[index];
+                nextCount++;
+            }
+            else {
+                newIndex[index] = newIndex[partner[index]];
+            }
+        }
+        int write = 0;
+        for(int index=0; index<nodeCount; index++){
+            if(partner[index]>=0 && partner[index]<index){
+                continue;
+            }
+            int merged = newIndex[index];
+            nextOffsets[merged] = write;
+            write = appendNeighbours(index, merged, write);
+            if(partner[index]>=0){
+                write = appendNeighbours(partner[index], merged, write);
+            }
+        }
+        nextOffsets[nextCount] = write;
+        Arrays.fill(stamp, 0, nextCount, -1);
+
+        int[] swap = offsets; offsets = nextOffsets; nextOffsets = swap;
+        swap = targets; targets = nextTargets; nextTargets = swap;
+        swap = nodeValues; nodeValues = nextNodeValues; nextNodeValues = swap;
+        nodeCount = nextCount;
+        relationCount = write/2;
+    }
+
+    private int appendNeighbours(int index, int merged, int write){
+        for(int k=offsets[index]; k<offsets[index+1]; k++){
+            int neighbour = newIndex[targets[k]];
+            if(neighbour!=merged && stamp[neighbour]!=merged){
+                stamp[neighbour] = merged;
+                nextTargets[write++] = neighbour;
+            }
+        }
+        return write;
+    }
+
+    /**
+     * Finds the pairs the sequential loop finds, deciding many nodes at once.
+     * In the sequential loop a node which is not paired yet takes its best neighbour not paired so far, and only nodes
+     * before it can take either of them. So once no undecided node before it is a neighbour of the node or of its
+     * best neighbour, the pair is final; a node without free neighbours is final once its preceding neighbours are.
+     * Decisions are taken for a window of nodes in parallel and applied afterwards. When most of a window stays
+     * undecided (e.g. a path numbered in order), next nodes are decided sequentially.
+     */
+    private void matchInParallel(){
+        final int round = unificationStep;
+        RangeTask.Body propose = new RangeTask.Body() {
+            @Override
+            public void run(int from, int to) {
+                for(int index=from; index<to; index++){
+                    choice[index] = decided[index]==round ? -3 : propose(index, round);
+                }
+            }
+        };
+        RangeTask.Body commit = new RangeTask.Body() {
+            @Override
+            public void run(int from, int to) {
+                for(int index=from; index<to; index++){
+                    int other = choice[index];
+                    if(other>=0){
+                        partner[index] = other;
+                        partner[other] = index;
+                        decided[other] = round;
+                        decided[index] = round;
+                    }
+                    else if(other==-1){
+                        decided[index] = round;
+                    }
+                }
+            }
+        };
+        int first = 0;//All nodes before first are decided.
+        int window = PARALLEL_MIN_WINDOW;
+        while(first<nodeCount){
+            int end = (int)Math.min((long)first + window, nodeCount);
+            pool.invoke(new RangeTask(propose, first, end, PARALLEL_GRAIN));
+            pool.invoke(new RangeTask(commit, first, end, PARALLEL_GRAIN));
+            int decidedCount = 0;
+            for(int index=first; index<end; index++){
+                if(decided[index]==round){
+                    decidedCount++;
+                }
+            }
+            boolean mostDecided = decidedCount*2 >= end-first;
+            first = nextUndecided(first, round);
+            if(mostDecided){
+                window = Math.min(window*2, PARALLEL_MAX_WINDOW);
+            }
+            else {
+                int sequentialEnd = (int)Math.min((long)first + PARALLEL_MIN_WINDOW, nodeCount);
+                for(int index=first; index<sequentialEnd; index++){
+                    if(decided[index]!=round){
+                        int otherIndex = getBestNodeToUnify(index);
+                        if(otherIndex>=0){
+                            partner[index] = otherIndex;
+                            partner[otherIndex] = index;
+                            decided[otherIndex] = round;
+                        }
+                        decided[index] = round;
+                    }
+                }
+                first = nextUndecided(sequentialEnd, round);
+                window = PARALLEL_MIN_WINDOW;
+            }
+        }
+    }
+
+    private int nextUndecided(int index, int round){
+        while(index<nodeCount && decided[index]==round){
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Decides an undecided node if no undecided node before it can interfere.
+     * @return Best neighbour, -1 if node stays single, -2 if it has to wait.
+     */
+    private int propose(int index, int round){
+        for(int k=offsets[index]; k<offsets[index+1]; k++){
+            if(targets[k]<index && decided[targets[k]]!=round){
+                return -2;
+            }
+        }
+        int other = getBestNodeToUnify(index);
+        if(other<0){
+            return -1;
+        }
+        for(int k=offsets[other]; k<offsets[other+1]; k++){
+            if(targets[k]<index && decided[targets[k]]!=round){
+                return -2;
+            }
+        }
+        return other;
+    }
+
+    /**
+     * Contracts like contract does, when rows are known to get no duplicate neighbours. Nodes are split into blocks:
+     * new indices and row offsets are computed as prefix sums over block totals, then rows are filled in parallel.
+     */
+    private void contractInParallel(){
+        final int count = nodeCount;
+        final int blockSize = Math.max(PARALLEL_GRAIN, count/(pool.getParallelism()*8) + 1);
+        final int[] sums = context.ints(SolverContext.GRAPH_BLOCK_SUMS, count/blockSize + 2);
+        int blocks = (count + blockSize - 1)/blockSize;
+        pool.invoke(new RangeTask(new RangeTask.Body() {
+            @Override
+            public void run(int from, int to) {
+                for(int block=from; block<to; block++){
+                    int survivors = 0;
+                    for(int index=block*blockSize; index<Math.min(count, (block+1)*blockSize); index++){
+                        if(partner[index]<0 || partner[index]>index){
+                            survivors++;
+                        }
+                    }
+                    sums[block] = survivors;
+                }
+            }
+        }, 0, blocks, 1));
+        final int nextCount = toPrefixSums(sums, blocks);
+        pool.invoke(new RangeTask(new RangeTask.Body() {
+            @Override
+            public void run(int from, int to) {
+                for(int block=from; block<to; block++){
+                    int next = sums[block];
+                    for(int index=block*blockSize; index<Math.min(count, (block+1)*blockSize); index++){
+                        if(partner[index]<0 || partner[index]>index){
+                            newIndex[index] = next;
+                            nextNodeValues[next] = nodeValues[index];
+                            //Row length for now, turned into offset below. Pair loses its own relation.
+                            nextOffsets[next] = partner[index]<0 ? getDegree(index) :
+                                    getDegree(index) + getDegree(partner[index]) - 2;
+                            next++;
+                        }
+                    }
+                }
+            }
+        }, 0, blocks, 1));
+        pool.invoke(new RangeTask(new RangeTask.Body() {
+            @Override
+            public void run(int from, int to) {
+                for(int index=from; index<to; index++){
+                    if(partner[index]>=0 && partner[index]<index){
+                        newIndex[index] = newIndex[partner[index]];
+                    }
+                }
+            }
+        }, 0, count, PARALLEL_GRAIN*8));
+        int rowBlocks = (nextCount + blockSize - 1)/blockSize;
+        pool.invoke(new RangeTask(new RangeTask.Body() {
+            @Override
+            public void run(int from, int to) {
+                for(int block=from; block<to; block++){
+                    int length = 0;
+                    for(int merged=block*blockSize; merged<Math.min(nextCount, (block+1)*blockSize); merged++){
+                        length += nextOffsets[merged];
+                    }
+                    sums[block] = length;
+                }
+            }
+        }, 0, rowBlocks, 1));
+        int total = toPrefixSums(sums, rowBlocks);
+        pool.invoke(new RangeTask(new RangeTask.Body() {
+            @Override
+            public void run(int from, int to) {
+                for(int block=from; block<to; block++){
+                    int offset = sums[block];
+                    for(int merged=block*blockSize; merged<Math.min(nextCount, (block+1)*blockSize); merged++){
+                        int length = nextOffsets[merged];
+                        nextOffsets[merged] = offset;
+                        offset += length;
+                    }
+                }
+            }
+        }, 0, rowBlocks, 1));
+        nextOffsets[nextCount] = total;
+        pool.invoke(new RangeTask(new RangeTask.Body() {
+            @Override
+            public void run(int from, int to) {
+                for(int index=from; index<to; index++){
+                    if(partner[index]<0 || partner[index]>index){
+                        int merged = newIndex[index];
+                        int write = appendRow(index, merged, nextOffsets[merged]);
+                        if(partner[index]>=0){
+                            appendRow(partner[index], merged, write);
+                        }
+                    }
+                }
+            }
+        }, 0, count, PARALLEL_GRAIN*8));
+
+        int[] swap = offsets; offsets = nextOffsets; nextOffsets = swap;
+        swap = targets; targets = nextTargets; nextTargets = swap;
+        swap = nodeValues; nodeValues = nextNodeValues; nextNodeValues = swap;
+        nodeCount = nextCount;
+        relationCount = total/2;
+    }
+
+    /**
+     * Turns values into exclusive prefix sums in place.
+     * @return Sum of all values.
+     */
+    private static int toPrefixSums(int[] values, int length){
+        int sum = 0;
+        for(int i=0; i<length; i++){
+            int value = values[i];
+            values[i] = sum;
+            sum += value;
+        }
+        return sum;
+    }
+
+    private int appendRow(int index, int merged, int write){
+        for(int k=offsets[index]; k<offsets[index+1]; k++){
+            int neighbour = newIndex[targets[k]];
+            if(neighbour!=merged){
+                nextTargets[write++] = neighbour;
+            }
+        }
+        return write;
+    }
+}
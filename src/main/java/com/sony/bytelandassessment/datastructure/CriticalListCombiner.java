@@ -0,0 +1,414 @@
+package com.sony.bytelandassessment.datastructure;
+
+import com.sony.bytelandassessment.exceptions.LogicViolationException;
+
+import java.util.Arrays;
+
+/**
+ * Combination step of UnionTree: computes critical list of a node (ranks which are still visible from it) out of
+ * critical lists of its children. Working buffers are kept between calls, so an instance is not thread safe.
+ *
+ * Children are kept in buckets by the highest rank left in their list (their level), and levels are decided from the
+ * highest one down. At a level with occupants every occupant but the one with the smallest remaining list has to
+ * close: its relation takes a free rank above the level, which hides the rest of its list. Number of closings is the
+ * deficit of the levels below (children which cannot be fitted under the level in any case) plus one if a lookahead
+ * shows that keeping occupants open would fail further down. Lookahead results hold for following levels until the
+ * floor they report, so every level is walked by a lookahead a bounded number of times in practice.
+ */
+class CriticalListCombiner {
+    static final int[] EMPTY_LIST = new int[0];
+
+    /*
+    Per child arrays, indexed as the children given to combine.
+     */
+    private int[] positions = new int[4];//Position of the highest remaining rank of a child in its list.
+    private int[] lookaheadPositions = new int[4];//Position during a lookahead, -1 when lookahead did not move it.
+    private int[] landedNext = new int[4];//Next child landed on the same level during a lookahead.
+
+    /*
+    Per level arrays, indexed by rank.
+     */
+    private int[] counts = new int[16];//Number of children whose highest remaining rank is the level.
+    private int[] smallest = new int[16];//Child with the smallest remaining list among them.
+    private int[] deficits = new int[16];//Deficit of levels up to the level, as lists were given.
+    private int[] landingTree = new int[16];//Deficit changes since then, as a Fenwick tree over levels.
+    private int[] lookaheadTree = new int[16];//Deficit changes of current lookahead, as a Fenwick tree.
+    private int[] landedHeads = new int[16];//First child landed on the level during a lookahead, -1 if none.
+    private int treeSize;//Length of Fenwick trees used by current combination.
+    private long[] idle = new long[1];//Levels which can absorb a landing child without deficit going up.
+    private boolean[] taken = new boolean[16];//Ranks in critical list of the parent.
+
+    /*
+    Undo log of a lookahead.
+     */
+    private int[] clearedLevels = new int[16];
+    private int[] rangeLows = new int[16];
+    private int[] rangeHighs = new int[16];
+    private int[] landedLevels = new int[16];
+    private int[] movedChildren = new int[16];
+    private int lookaheadFloor;
+
+    /**
+     * Combines critical lists of children into critical list of their parent.
+     * Critical list of a leaf is empty. Lists are kept in descending order. Every child relation takes a rank which is
+     * not visible in its child list, hides smaller ranks of that list, and visible ranks of different children must
+     * not collide. Resulting list is the lexicographically smallest one (compared from the largest rank).
+     */
+    int[] combine(int[][] childLists, int count) throws LogicViolationException{
+        int freeCount = 0;//Children with empty critical list, they can take any free rank.
+        int highest = 0;
+        for(int k=0; k<count; k++){
+            int[] list = childLists[k];
+            if(list.length==0){
+                freeCount++;
+            }
+            else {
+                highest = Math.max(highest, list[0]);
+            }
+        }
+        if(highest==0){
+            return ranksUpTo(freeCount);
+        }
+        if(count==1){
+            return extendSingle(childLists[0]);
+        }
+        prepare(childLists, count, highest, freeCount);
+        int pending = 0;//Closings decided above which did not fit into their level.
+        int successFloor = Integer.MAX_VALUE;//Keeping occupants open succeeds at levels from here up.
+        int failureFloor = Integer.MAX_VALUE;//Keeping occupants open fails at levels from here up.
+        for(int level=highest; level>=1; level--){
+            int occupants = counts[level];
+            if(occupants==0){
+                continue;
+            }
+            /*
+            Children closed first are the ones with the largest lists, which are the highest occupants.
+             */
+            if(pending>=occupants){
+                pending -= occupants;
+                counts[level] = 0;
+                continue;
+            }
+            occupants -= pending;
+            counts[level] = occupants;
+            pending = 0;
+            int closings = Math.max(0, deficit(level - 1) + occupants - 1);
+            boolean fails;
+            if(level>=successFloor){
+                fails = false;
+            }
+            else if(level>=failureFloor){
+                fails = true;
+            }
+            else {
+                fails = !lookahead(childLists, level, closings);
+                successFloor = fails ? Integer.MAX_VALUE : lookaheadFloor;
+                failureFloor = fails ? lookaheadFloor : Integer.MAX_VALUE;
+            }
+            if(fails){
+                closings++;
+            }
+            for(int rank=level + 1; rank<=level + closings; rank++){
+                taken[rank] = true;
+            }
+            if(closings>=occupants){
+                pending = closings - occupants;
+            }
+            else if(closings==occupants - 1){
+                int child = smallest[level];
+                int[] list = childLists[child];
+                taken[level] = true;
+                int position = ++positions[child];
+                int landing = position<list.length ? list[position] : 0;
+                if(landing==0){
+                    freeCount++;
+                }
+                else {
+                    addToLevel(childLists, child, landing);
+                }
+                land(landing, level, landingTree, false);
+            }
+            else {
+                throw new LogicViolationException("Unexpected rank collision while combining subtrees.");
+            }
+            counts[level] = 0;
+        }
+        for(int rank=freeCount - pending; rank>=1; rank--){
+            taken[rank] = true;
+        }
+        int length = 0;
+        for(int rank=highest + count + 1; rank>=1; rank--){
+            if(taken[rank]){
+                length++;
+            }
+        }
+        int[] list = new int[length];
+        for(int rank=highest + count + 1, i=0; rank>=1; rank--){
+            if(taken[rank]){
+                list[i++] = rank;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Walks levels from given level down as if every level was kept by closing only as many occupants as the
+     * credits allow, until it fails or no level below can fail any more. On success lookaheadFloor is the level the
+     * walk stopped at, on failure the highest level an occupant was kept at (Integer.MAX_VALUE if none). Every change
+     * is undone before returning.
+     */
+    private boolean lookahead(int[][] childLists, int top, int credits){
+        int cleared = 0;
+        int ranges = 0;
+        int landed = 0;
+        int moved = 0;
+        int firstKept = Integer.MAX_VALUE;
+        boolean decided = false;
+        boolean success = false;
+        for(int level=top; level>=1 && !decided; level--){
+            int occupants = counts[level];
+            for(int child=landedHeads[level]; child>=0; child=landedNext[child]){
+                occupants++;
+            }
+            if(occupants==0){
+                credits++;
+            }
+            else if(occupants<=credits){
+                credits -= occupants - 1;
+            }
+            else if(occupants==credits + 1){
+                int keep = counts[level]>0 ? smallest[level] : -1;
+                for(int child=landedHeads[level]; child>=0; child=landedNext[child]){
+                    if(keep<0 || isSmaller(childLists, child, keep)){
+                        keep = child;
+                    }
+                }
+                int position = lookaheadPosition(keep) + 1;
+                lookaheadPositions[keep] = position;
+                movedChildren[moved++] = keep;
+                int[] list = childLists[keep];
+                int landing = position<list.length ? list[position] : 0;
+                if(landing>0){
+                    landedNext[keep] = landedHeads[landing];
+                    landedHeads[landing] = keep;
+                    landedLevels[landed++] = landing;
+                }
+                int absorbed = land(landing, level, lookaheadTree, true);
+                if(absorbed>0){
+                    clearedLevels[cleared++] = absorbed;
+                }
+                rangeLows[ranges] = landing;
+                rangeHighs[ranges++] = absorbed>0 ? absorbed - 1 : level - 1;
+                credits = 0;
+                if(firstKept==Integer.MAX_VALUE){
+                    firstKept = level;
+                }
+            }
+            else {
+                decided = true;
+                lookaheadFloor = firstKept;
+            }
+            if(!decided && credits>deficit(level - 1)){
+                decided = true;
+                success = true;
+                lookaheadFloor = level;
+            }
+        }
+        if(!decided){
+            success = credits>=deficit(0);
+            lookaheadFloor = success ? 0 : firstKept;
+        }
+        for(int i=0; i<cleared; i++){
+            idle[clearedLevels[i] >>> 6] |= 1L << clearedLevels[i];
+        }
+        for(int i=0; i<ranges; i++){
+            addRange(lookaheadTree, rangeLows[i], rangeHighs[i], -1);
+        }
+        for(int i=0; i<landed; i++){
+            landedHeads[landedLevels[i]] = -1;
+        }
+        for(int i=0; i<moved; i++){
+            lookaheadPositions[movedChildren[i]] = -1;
+        }
+        return success;
+    }
+
+    /**
+     * Puts a child whose highest remaining rank changed into the bucket of its new level.
+     */
+    private void addToLevel(int[][] childLists, int child, int level){
+        if(counts[level]==0 || isSmaller(childLists, child, smallest[level])){
+            smallest[level] = child;
+        }
+        counts[level]++;
+    }
+
+    /**
+     * Accounts a child landing on given level below cap (0 when its list is exhausted): deficit of levels from the
+     * landing up goes up by one until the lowest idle level, which absorbs it and stops being idle.
+     * @return Absorbing level, 0 if no level below cap is idle.
+     */
+    private int land(int landing, int cap, int[] tree, boolean lookahead){
+        int absorbed = nextIdle(Math.max(landing, 1), cap);
+        if(absorbed>0){
+            idle[absorbed >>> 6] &= ~(1L << absorbed);
+            addRange(tree, landing, absorbed - 1, 1);
+        }
+        else {
+            addRange(tree, landing, cap - 1, 1);
+        }
+        return lookahead ? absorbed : 0;
+    }
+
+    /**
+     * Gets lowest idle level in [from, cap-1].
+     * @return Idle level, 0 if there is none.
+     */
+    private int nextIdle(int from, int cap){
+        if(from>=cap){
+            return 0;
+        }
+        int word = from >>> 6;
+        long bits = idle[word] & (-1L << from);
+        while(bits==0){
+            if(++word>(cap - 1) >>> 6){
+                return 0;
+            }
+            bits = idle[word];
+        }
+        int level = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return level<cap ? level : 0;
+    }
+
+    /**
+     * Gets number of children which cannot be fitted into ranks 1..level, counting their highest remaining ranks
+     * only, including changes of current lookahead.
+     */
+    private int deficit(int level){
+        return deficits[level] + sum(landingTree, level) + sum(lookaheadTree, level);
+    }
+
+    private int lookaheadPosition(int child){
+        return lookaheadPositions[child]>=0 ? lookaheadPositions[child] : positions[child];
+    }
+
+    /**
+     * Checks if remaining list of first child is lexicographically smaller than remaining list of second child,
+     * compared from the largest rank. Positions moved by current lookahead are used.
+     */
+    private boolean isSmaller(int[][] childLists, int first, int second){
+        int[] firstList = childLists[first];
+        int[] secondList = childLists[second];
+        int i = lookaheadPosition(first);
+        int j = lookaheadPosition(second);
+        while(i<firstList.length && j<secondList.length){
+            if(firstList[i]!=secondList[j]){
+                return firstList[i]<secondList[j];
+            }
+            i++;
+            j++;
+        }
+        return i==firstList.length && j<secondList.length;
+    }
+
+    /**
+     * Fills buckets, deficits and idle levels of given children.
+     */
+    private void prepare(int[][] childLists, int count, int highest, int freeCount){
+        if(positions.length<count){
+            int size = Math.max(count, positions.length*2);
+            positions = new int[size];
+            lookaheadPositions = new int[size];
+            landedNext = new int[size];
+        }
+        if(counts.length<highest + 3){
+            int size = Math.max(highest + 3, counts.length*2);
+            counts = new int[size];
+            smallest = new int[size];
+            deficits = new int[size];
+            landingTree = new int[size];
+            lookaheadTree = new int[size];
+            landedHeads = new int[size];
+            clearedLevels = new int[size];
+            rangeLows = new int[size];
+            rangeHighs = new int[size];
+            landedLevels = new int[size];
+            movedChildren = new int[size];
+            idle = new long[(size >>> 6) + 1];
+        }
+        if(taken.length<highest + count + 2){
+            taken = new boolean[Math.max(highest + count + 2, taken.length*2)];
+        }
+        Arrays.fill(counts, 0, highest + 1, 0);
+        treeSize = highest + 3;
+        Arrays.fill(landingTree, 0, treeSize, 0);
+        Arrays.fill(lookaheadTree, 0, treeSize, 0);
+        Arrays.fill(landedHeads, 0, highest + 1, -1);
+        Arrays.fill(idle, 0, (highest >>> 6) + 1, 0L);
+        Arrays.fill(taken, 0, highest + count + 2, false);
+        Arrays.fill(lookaheadPositions, 0, count, -1);
+        for(int k=0; k<count; k++){
+            positions[k] = 0;
+            if(childLists[k].length>0){
+                addToLevel(childLists, k, childLists[k][0]);
+            }
+        }
+        deficits[0] = freeCount;
+        for(int level=1; level<=highest; level++){
+            deficits[level] = Math.max(0, deficits[level - 1] + counts[level] - 1);
+            if(counts[level]==0 && deficits[level - 1]==0){
+                idle[level >>> 6] |= 1L << level;
+            }
+        }
+    }
+
+    /**
+     * Critical list of a node with single child: relation takes the smallest rank missing in child list.
+     */
+    private int[] extendSingle(int[] list){
+        int missing = list.length;//Position of the smallest missing rank in descending list.
+        while(missing>0 && list[missing-1]==list.length-missing+1){
+            missing--;
+        }
+        int rank = list.length - missing + 1;
+        int[] extended = new int[missing + 1];
+        System.arraycopy(list, 0, extended, 0, missing);
+        extended[missing] = rank;
+        return extended;
+    }
+
+    private int[] ranksUpTo(int count){
+        if(count==0){
+            return EMPTY_LIST;
+        }
+        int[] list = new int[count];
+        for(int i=0; i<count; i++){
+            list[i] = count - i;
+        }
+        return list;
+    }
+
+    /*
+    Fenwick tree over levels 0..highest, adding to ranges and reading single levels.
+     */
+
+    private void addRange(int[] tree, int low, int high, int value){
+        if(low>high){
+            return;
+        }
+        for(int i=low + 1; i<treeSize; i+=i & -i){
+            tree[i] += value;
+        }
+        for(int i=high + 2; i<treeSize; i+=i & -i){
+            tree[i] -= value;
+        }
+    }
+
+    private static int sum(int[] tree, int level){
+        int sum = 0;
+        for(int i=level + 1; i>0; i-=i & -i){
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
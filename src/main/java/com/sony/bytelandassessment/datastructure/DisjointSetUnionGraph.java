@@ -0,0 +1,389 @@
+package com.sony.bytelandassessment.datastructure;
+
+import com.sony.bytelandassessment.exceptions.LogicViolationException;
+import com.sony.bytelandassessment.exceptions.NotUnifiableException;
+import com.sony.bytelandassessment.metrics.SolverMetrics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Graph object which calculates minimum number of steps needed to unite all nodes in a graph.
+ * It follows UnionGraph set to visit nodes and resolve ties in ascending node id step by step: a pair is merged as
+ * soon as it is chosen, so nodes visited later in the same round see the merged relations. Instead of re-creating relations of the
+ * absorbed node, merged cities are kept in a disjoint-set forest (union by size, path compression), and neighbour
+ * lists are linked lists which are spliced on merge:
+ *      neighbours of a merged node are find(target[e]) for every entry e of its list
+ * Entries pointing into the node itself or repeating a neighbour are left in place and dropped when the list is
+ * walked next. Number of distinct neighbours is kept exact, since it is the cost unification rules compare.
+ *
+ * When the graph is a tree, contracting a relation never gives two relations between the same nodes, so a merge is
+ * a union and a splice. Otherwise the list of the absorbed node is walked to find neighbours both nodes had.
+ */
+public class DisjointSetUnionGraph {
+    private int unificationStep = 0;
+    private final int size;
+    private int nodeCount;
+    private int relationCount;
+    private final boolean tree;
+    private SolverMetrics metrics = SolverMetrics.NO_OP;
+
+    /*
+    Arrays indexed by city. Fields other than parent are valid for roots of the forest only.
+     */
+    private final int[] parent;//Parent in the forest, the city itself for roots.
+    private final int[] setSize;//Number of cities merged into a root.
+    private final int[] nodeValue;//Id of the node a root stands for, the smallest id merged into it.
+    private final int[] degree;//Number of distinct neighbours.
+    private final int[] head;//First entry of neighbour list, -1 if empty.
+    private final int[] tail;//Last entry of neighbour list, -1 if empty.
+    private final int[] unifiedRound;//Round the node is unified in.
+    private final int[] stamp;//Marks neighbours seen by the current walk.
+    private int stampValue = 0;
+
+    /*
+    Arrays indexed by list entry.
+     */
+    private final int[] target;//A city of the neighbour, re-pointed to its root when the entry is walked.
+    private final int[] next;//Next entry of the list, -1 at the end.
+
+    private final int[] order;//Ids of nodes left, ascending.
+    private int orderSize;
+
+    /**
+     * Creates new DisjointSetUnionGraph object with given adjacency matrix.
+     * @param adjacencyMatrix Adjacency matrix in the same fashion UnionGraph uses:
+     *                               [ [1, 2], [0, 2], [0, 1] ]
+     *                        Loops and duplicate relations are ignored, relations are treated as undirected.
+     * @throws LogicViolationException
+     */
+    public DisjointSetUnionGraph(List<List<Integer>> adjacencyMatrix) throws LogicViolationException{
+        this(adjacencyMatrix, new SolverContext());
+    }
+
+    /**
+     * Creates new DisjointSetUnionGraph object with given adjacency matrix, working in arrays of given context.
+     * @param adjacencyMatrix Adjacency matrix.
+     * @param context Solver context.
+     * @throws LogicViolationException
+     */
+    public DisjointSetUnionGraph(List<List<Integer>> adjacencyMatrix, SolverContext context)
+            throws LogicViolationException{
+        this(AdjacencyArrays.fromMatrix(adjacencyMatrix, context), context);
+    }
+
+    /**
+     * Creates new DisjointSetUnionGraph object from parent links, which is the fashion experiments are given:
+     * city (i+1) is connected to city parents[i].
+     * @param parents Parent links.
+     * @param numOfCities Number of cities, parents should hold at least (numOfCities-1) values.
+     * @throws LogicViolationException
+     */
+    public DisjointSetUnionGraph(int[] parents, int numOfCities) throws LogicViolationException{
+        this(parents, numOfCities, new SolverContext());
+    }
+
+    /**
+     * Creates new DisjointSetUnionGraph object from parent links, working in arrays of given context.
+     * @param parents Parent links.
+     * @param numOfCities Number of cities, parents should hold at least (numOfCities-1) values.
+     * @param context Solver context.
+     * @throws LogicViolationException
+     */
+    public DisjointSetUnionGraph(int[] parents, int numOfCities, SolverContext context)
+            throws LogicViolationException{
+        this(AdjacencyArrays.fromParents(parents, numOfCities, context), context);
+    }
+
+    /**
+     * Creates new DisjointSetUnionGraph object over given adjacency arrays. Targets are modified by unification.
+     * @param adjacency Adjacency arrays.
+     */
+    public DisjointSetUnionGraph(AdjacencyArrays adjacency){
+        this(adjacency, new SolverContext());
+    }
+
+    /**
+     * Creates new DisjointSetUnionGraph object over given adjacency arrays, working buffers are taken from given
+     * context. Targets are modified by unification.
+     * @param adjacency Adjacency arrays.
+     * @param context Solver context.
+     */
+    public DisjointSetUnionGraph(AdjacencyArrays adjacency, SolverContext context){
+        this.size = adjacency.getNodeCount();
+        this.nodeCount = size;
+        this.relationCount = adjacency.getRelationCount();
+        int[] offsets = adjacency.getOffsets();
+        this.target = adjacency.getTargets();
+        this.next = context.ints(SolverContext.FOREST_NEXT, Math.max(offsets[size], 1));
+        this.parent = context.ints(SolverContext.FOREST_PARENT, size);
+        this.setSize = context.ints(SolverContext.FOREST_SET_SIZE, size);
+        this.nodeValue = context.ints(SolverContext.FOREST_NODE_VALUES, size);
+        this.degree = context.ints(SolverContext.FOREST_DEGREE, size);
+        this.head = context.ints(SolverContext.FOREST_HEAD, size);
+        this.tail = context.ints(SolverContext.FOREST_TAIL, size);
+        this.unifiedRound = context.ints(SolverContext.FOREST_UNIFIED_ROUND, size);
+        this.stamp = context.ints(SolverContext.FOREST_STAMP, size);
+        this.order = context.ints(SolverContext.FOREST_ORDER, size);
+        resetForest();
+        //Graph is a tree if relations join every node into one set and there is no relation to spare.
+        int joined = 0;
+        for(int city=0; city<size; city++){
+            for(int k=offsets[city]; k<offsets[city+1]; k++){
+                if(target[k]>city && union(find(city), find(target[k]))>=0){
+                    joined++;
+                }
+            }
+        }
+        this.tree = joined == size-1 && relationCount == size-1;
+        resetForest();
+        for(int city=0; city<size; city++){
+            int first = offsets[city];
+            int last = offsets[city+1] - 1;
+            for(int k=first; k<last; k++){
+                next[k] = k + 1;
+            }
+            if(last>=first){
+                next[last] = -1;
+            }
+            head[city] = last>=first ? first : -1;
+            tail[city] = last>=first ? last : -1;
+            degree[city] = last - first + 1;
+            order[city] = city;
+        }
+        this.orderSize = size;
+    }
+
+    private void resetForest(){
+        for(int city=0; city<size; city++){
+            parent[city] = city;
+            setSize[city] = 1;
+            nodeValue[city] = city;
+            unifiedRound[city] = -1;
+            stamp[city] = -1;
+        }
+    }
+
+    /**
+     * Gets number of nodes in the context.
+     * @return Number of nodes.
+     */
+    public int getNodeCount(){
+        return this.nodeCount;
+    }
+
+    /**
+     * Gets number of relations in the context.
+     * @return Number of relations.
+     */
+    public int getRelationCount(){
+        return this.relationCount;
+    }
+
+    /**
+     * Gets id of the node given city is merged into.
+     * @param city City id, [0, number of cities).
+     * @return Node id.
+     */
+    public int getNodeValue(int city){
+        return this.nodeValue[find(city)];
+    }
+
+    /**
+     * Gets number of neighbours of the node given city is merged into.
+     * @param city City id, [0, number of cities).
+     * @return Number of neighbours.
+     */
+    public int getDegree(int city){
+        return this.degree[find(city)];
+    }
+
+    /**
+     * Sets metrics every unification round is reported to.
+     * @param metrics Metrics, SolverMetrics.NO_OP to disable.
+     */
+    public void setMetrics(SolverMetrics metrics){
+        this.metrics = metrics;
+    }
+
+    private int find(int city){
+        int root = city;
+        while(parent[root]!=root){
+            root = parent[root];
+        }
+        while(parent[city]!=root){
+            int up = parent[city];
+            parent[city] = root;
+            city = up;
+        }
+        return root;
+    }
+
+    /**
+     * Joins sets of two roots, the smaller set is hung under the larger one.
+     * @return Root of joined set, -1 if roots are the same.
+     */
+    private int union(int firstRoot, int secondRoot){
+        if(firstRoot==secondRoot){
+            return -1;
+        }
+        if(setSize[firstRoot]<setSize[secondRoot]){
+            int swap = firstRoot; firstRoot = secondRoot; secondRoot = swap;
+        }
+        parent[secondRoot] = firstRoot;
+        setSize[firstRoot] += setSize[secondRoot];
+        return firstRoot;
+    }
+
+    private int getBestNodeToUnify(int root, int round){
+        /*
+        Cost is calculated respecting to number of relations of neighbour.
+        Ties are resolved in favour of the smaller node id.
+        List is cleaned while walked; every neighbour is left stamped for merge.
+         */
+        if(stampValue>Integer.MAX_VALUE-4){
+            Arrays.fill(stamp, 0, size, -1);
+            stampValue = 0;
+        }
+        stampValue += 2;
+        int minCost = Integer.MAX_VALUE;
+        int nodeWithMinCost = -1;
+        int previous = -1;
+        for(int e=head[root]; e>=0; e=next[e]){
+            int neighbour = find(target[e]);
+            if(neighbour==root || stamp[neighbour]==stampValue){
+                previous = unlink(root, previous, e);
+                continue;
+            }
+            target[e] = neighbour;
+            stamp[neighbour] = stampValue;
+            previous = e;
+            if(unifiedRound[neighbour]!=round){
+                int numberOfNeighbours = degree[neighbour];
+                if(numberOfNeighbours<minCost ||
+                        (numberOfNeighbours==minCost && nodeValue[neighbour]<nodeValue[nodeWithMinCost])){
+                    minCost = numberOfNeighbours;
+                    nodeWithMinCost = neighbour;
+                }
+            }
+        }
+        return nodeWithMinCost;
+    }
+
+    /**
+     * Removes entry from list of given root.
+     * @return Entry walk continues after.
+     */
+    private int unlink(int root, int previous, int entry){
+        if(previous<0){
+            head[root] = next[entry];
+        }
+        else {
+            next[previous] = next[entry];
+        }
+        if(tail[root]==entry){
+            tail[root] = previous;
+        }
+        return previous;
+    }
+
+    /**
+     * Merges second node into first one. Neighbours of first node should be stamped, as getBestNodeToUnify leaves them.
+     */
+    private void unifyNodes(int first, int second){
+        int common = 0;
+        if(!tree){
+            //Neighbours of both nodes lose one relation. Stamp+1 marks neighbours of second node already seen.
+            int previous = -1;
+            for(int e=head[second]; e>=0; e=next[e]){
+                int neighbour = find(target[e]);
+                if(neighbour==first || neighbour==second || stamp[neighbour]==stampValue+1){
+                    previous = unlink(second, previous, e);
+                    continue;
+                }
+                if(stamp[neighbour]==stampValue){
+                    degree[neighbour]--;
+                    common++;
+                    stamp[neighbour] = stampValue+1;
+                    previous = unlink(second, previous, e);
+                    continue;
+                }
+                target[e] = neighbour;
+                stamp[neighbour] = stampValue+1;
+                previous = e;
+            }
+        }
+        int mergedDegree = degree[first] + degree[second] - 2 - common;
+        int mergedHead = head[first];
+        int mergedTail = tail[first];
+        if(head[second]>=0){
+            if(mergedHead<0){
+                mergedHead = head[second];
+            }
+            else {
+                next[mergedTail] = head[second];
+            }
+            mergedTail = tail[second];
+        }
+        int value = nodeValue[first];
+        int root = union(first, second);
+        nodeValue[root] = value;
+        degree[root] = mergedDegree;
+        head[root] = mergedHead;
+        tail[root] = mergedTail;
+        unifiedRound[root] = unificationStep;
+        relationCount -= 1 + common;
+        nodeCount--;
+    }
+
+    /**
+     * Unifies all nodes respecting to restrictions in Byteland Union problem given in assessment.
+     * @return Minimum number of steps to unify all nodes.
+     * @throws NotUnifiableException
+     */
+    public int unifyAndReturnStepNumber() throws NotUnifiableException{
+        while(nodeCount>1){
+            /*
+            If there is no relation left, and there are multiple nodes, structure is not unifiable.
+             */
+            if(relationCount==0){
+                throw new NotUnifiableException("This structure is not unifiable.");
+            }
+            int round = unificationStep;
+            int merges = 0;
+            boolean timed = metrics != SolverMetrics.NO_OP;
+            long selectionNanos = 0;
+            long mergeNanos = 0;
+            for(int i=0; i<orderSize; i++){
+                int root = find(order[i]);
+                if(unifiedRound[root]!=round){
+                    long start = timed ? System.nanoTime() : 0;
+                    int other = getBestNodeToUnify(root, round);
+                    if(timed){
+                        long now = System.nanoTime();
+                        selectionNanos += now - start;
+                        start = now;
+                    }
+                    if(other>=0){
+                        unifyNodes(root, other);
+                        merges++;
+                        if(timed){
+                            mergeNanos += System.nanoTime() - start;
+                        }
+                    }
+                }
+            }
+            //Absorbed nodes come after the node they are merged into, so nodes left stay in ascending order.
+            int retained = 0;
+            for(int i=0; i<orderSize; i++){
+                if(nodeValue[find(order[i])]==order[i]){
+                    order[retained++] = order[i];
+                }
+            }
+            orderSize = retained;
+            this.unificationStep++;
+            metrics.roundFinished(nodeCount, merges, relationCount, selectionNanos, mergeNanos);
+        }
+        return this.unificationStep;
+    }
+}
@@ -0,0 +1,220 @@
+package com.sony.bytelandassessment.datastructure;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Relation store of UnionGraph: open addressing hash table keyed by both node ids packed into a long,
+ * smaller id in the high half, so a relation and its reverse share the key. Keys are distinct for distinct relations,
+ * probing is linear and removal shifts following entries back instead of leaving tombstones, so insert, remove and
+ * lookup stay O(1) without boxing.
+ *
+ * Iteration order is not specified, and iterator does not support removal.
+ */
+class EdgeSet extends AbstractSet<Relation> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Relation[] values;//Null marks an empty slot.
+    private int mask;
+    private int shift;
+    private int size = 0;
+
+    /**
+     * Creates an empty set which holds given number of relations without resizing.
+     * @param expectedSize Expected number of relations.
+     */
+    EdgeSet(int expectedSize){
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int size){
+        //Load factor is kept below 2/3.
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max((long)size*3/2, 1))*2);
+        if(capacity>(1 << 30)){
+            throw new IllegalStateException("Too many relations.");
+        }
+        return (int)capacity;
+    }
+
+    private void allocate(int capacity){
+        this.keys = new long[capacity];
+        this.values = new Relation[capacity];
+        this.mask = capacity - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * Packs ids of both ends of a relation into a key which does not depend on their order.
+     * @param firstId Id of a node.
+     * @param secondId Id of the other node.
+     * @return Key.
+     */
+    static long key(int firstId, int secondId){
+        int min = Math.min(firstId, secondId);
+        int max = Math.max(firstId, secondId);
+        return ((long)min << 32) | (max & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Spreads every bit of a key over the high bits of a hash, which Relation.hashCode and slot index use.
+     */
+    static long mix(long key){
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    private static long keyOf(Relation relation){
+        return key(relation.getFirstNode().getNodeValue(), relation.getSecondNode().getNodeValue());
+    }
+
+    private int slot(long key){
+        return (int)(mix(key) >>> shift);
+    }
+
+    private int find(long key){
+        for(int i=slot(key); values[i]!=null; i=(i+1) & mask){
+            if(keys[i]==key){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets relation between given nodes.
+     * @param firstId Id of a node.
+     * @param secondId Id of the other node.
+     * @return Relation object, null if nodes are not related.
+     */
+    Relation get(int firstId, int secondId){
+        int i = find(key(firstId, secondId));
+        return i < 0 ? null : values[i];
+    }
+
+    /**
+     * Removes relation between given nodes.
+     * @param firstId Id of a node.
+     * @param secondId Id of the other node.
+     * @return Removed relation object, null if nodes are not related.
+     */
+    Relation remove(int firstId, int secondId){
+        int i = find(key(firstId, secondId));
+        if(i<0){
+            return null;
+        }
+        Relation removed = values[i];
+        removeAt(i);
+        return removed;
+    }
+
+    private void removeAt(int hole){
+        for(int i=(hole+1) & mask; values[i]!=null; i=(i+1) & mask){
+            //Entry moves back into the hole unless its home slot lies between the hole and itself.
+            if(((i - slot(keys[i])) & mask) >= ((i - hole) & mask)){
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        values[hole] = null;
+        size--;
+    }
+
+    /**
+     * Adds a relation unless its nodes are already related.
+     * @param relation Relation object.
+     * @return True if relation is added.
+     */
+    @Override
+    public boolean add(Relation relation){
+        long key = keyOf(relation);
+        int i = slot(key);
+        for(; values[i]!=null; i=(i+1) & mask){
+            if(keys[i]==key){
+                return false;
+            }
+        }
+        keys[i] = key;
+        values[i] = relation;
+        if(++size*3 > values.length*2){
+            resize(values.length*2);
+        }
+        return true;
+    }
+
+    private void resize(int capacity){
+        long[] oldKeys = keys;
+        Relation[] oldValues = values;
+        allocate(capacity);
+        for(int k=0; k<oldValues.length; k++){
+            if(oldValues[k]!=null){
+                int i = slot(oldKeys[k]);
+                while(values[i]!=null){
+                    i = (i+1) & mask;
+                }
+                keys[i] = oldKeys[k];
+                values[i] = oldValues[k];
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(Object o){
+        return o instanceof Relation && find(keyOf((Relation) o))>=0;
+    }
+
+    @Override
+    public boolean remove(Object o){
+        if(!(o instanceof Relation)){
+            return false;
+        }
+        int i = find(keyOf((Relation) o));
+        if(i<0){
+            return false;
+        }
+        removeAt(i);
+        return true;
+    }
+
+    @Override
+    public void clear(){
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public Iterator<Relation> iterator(){
+        return new Iterator<Relation>() {
+            private int next = advance(0);
+
+            private int advance(int i){
+                while(i<values.length && values[i]==null){
+                    i++;
+                }
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next<values.length;
+            }
+
+            @Override
+            public Relation next() {
+                if(next>=values.length){
+                    throw new NoSuchElementException();
+                }
+                Relation relation = values[next];
+                next = advance(next + 1);
+                return relation;
+            }
+        };
+    }
+}
@@ -0,0 +1,244 @@
+package com.sony.bytelandassessment.datastructure;
+
+import com.sony.bytelandassessment.exceptions.LogicViolationException;
+import com.sony.bytelandassessment.exceptions.NotUnifiableException;
+
+import java.util.Arrays;
+
+/**
+ * Tree which keeps minimum number of steps to unite all its nodes up to date while nodes and relations change.
+ * It solves the tree the same way UnionTree does, but critical list of every subtree is kept, so after a change only
+ * the subtrees on the path from the change to root (node 0) are combined again. Update stops early once a subtree
+ * summarizes to the same critical list as before. Cost of a change is therefore bounded by depth of the changed node,
+ * which is small for bushy trees but can approach number of nodes for long paths.
+ *
+ * Node ids of removed nodes are not reused, new nodes take ids after the largest one given so far.
+ */
+public class IncrementalUnionTree {
+    private static final int REMOVED = -2;
+
+    private int capacity;//Number of node ids given so far.
+    private int nodeCount;
+    private int[] parents;//Parent of every node, -1 for root and REMOVED for removed ids.
+    private int[][] children;
+    private int[] childCounts;
+    private int[] childPositions;//Position of every node in children of its parent.
+    private int[][] lists;//Critical list of every subtree.
+    private int[][] childLists = new int[4][];
+    private final CriticalListCombiner combiner = new CriticalListCombiner();
+
+    /**
+     * Creates new IncrementalUnionTree object from parent links, which is the fashion experiments are given:
+     * city (i+1) is connected to city parents[i].
+     * @param parents Parent links.
+     * @param numOfCities Number of cities, parents should hold at least (numOfCities-1) values.
+     * @throws LogicViolationException If structure has a cycle.
+     * @throws NotUnifiableException If structure is disconnected.
+     */
+    public IncrementalUnionTree(int[] parents, int numOfCities) throws LogicViolationException, NotUnifiableException{
+        UnionTree tree = new UnionTree(parents, numOfCities);//Roots the tree at node 0 and validates it.
+        allocate(Math.max(numOfCities, 4));
+        this.capacity = numOfCities;
+        this.nodeCount = numOfCities;
+        for(int node=0; node<numOfCities; node++){
+            this.parents[node] = tree.getRootedParent(node);
+            this.lists[node] = CriticalListCombiner.EMPTY_LIST;
+        }
+        for(int node=1; node<numOfCities; node++){
+            attach(node, this.parents[node]);
+        }
+        int[] order = breadthFirstOrder();
+        for(int i=numOfCities-1; i>=0; i--){
+            this.lists[order[i]] = combineChildren(order[i]);
+        }
+    }
+
+    private void allocate(int size){
+        this.parents = new int[size];
+        this.children = new int[size][];
+        this.childCounts = new int[size];
+        this.childPositions = new int[size];
+        this.lists = new int[size][];
+    }
+
+    private void grow(){
+        int size = parents.length*2;
+        parents = Arrays.copyOf(parents, size);
+        children = Arrays.copyOf(children, size);
+        childCounts = Arrays.copyOf(childCounts, size);
+        childPositions = Arrays.copyOf(childPositions, size);
+        lists = Arrays.copyOf(lists, size);
+    }
+
+    private int[] breadthFirstOrder(){
+        int[] order = new int[nodeCount];
+        int tail = 1;
+        for(int head=0; head<tail; head++){
+            int node = order[head];
+            for(int k=0; k<childCounts[node]; k++){
+                order[tail++] = children[node][k];
+            }
+        }
+        return order;
+    }
+
+    private void attach(int node, int parent){
+        if(children[parent]==null){
+            children[parent] = new int[2];
+        }
+        else if(childCounts[parent]==children[parent].length){
+            children[parent] = Arrays.copyOf(children[parent], childCounts[parent]*2);
+        }
+        childPositions[node] = childCounts[parent];
+        children[parent][childCounts[parent]++] = node;
+        parents[node] = parent;
+    }
+
+    private void detach(int node){
+        int parent = parents[node];
+        int position = childPositions[node];
+        int last = children[parent][--childCounts[parent]];
+        children[parent][position] = last;
+        childPositions[last] = position;
+    }
+
+    private int[] combineChildren(int node) throws LogicViolationException{
+        int count = childCounts[node];
+        if(childLists.length<count){
+            childLists = new int[Math.max(count, childLists.length*2)][];
+        }
+        for(int k=0; k<count; k++){
+            childLists[k] = lists[children[node][k]];
+        }
+        int[] list = combiner.combine(childLists, count);
+        Arrays.fill(childLists, 0, count, null);
+        return list;
+    }
+
+    /**
+     * Combines subtrees from given node up to root again, until a critical list stays the same.
+     */
+    private void update(int node) throws LogicViolationException{
+        while(node>=0){
+            int[] list = combineChildren(node);
+            if(Arrays.equals(list, lists[node])){
+                return;
+            }
+            lists[node] = list;
+            node = parents[node];
+        }
+    }
+
+    private void checkNode(int nodeId) throws LogicViolationException{
+        if(nodeId<0 || nodeId>=capacity || parents[nodeId]==REMOVED){
+            throw new LogicViolationException(String.format("Node %s is out of graph bounds.", nodeId));
+        }
+    }
+
+    /**
+     * Adds a new leaf node connected to given node.
+     * @param parent Node id the new node is connected to.
+     * @return Id of the new node.
+     * @throws LogicViolationException If parent does not exist.
+     */
+    public int addLeaf(int parent) throws LogicViolationException{
+        checkNode(parent);
+        if(capacity==parents.length){
+            grow();
+        }
+        int node = capacity++;
+        nodeCount++;
+        lists[node] = CriticalListCombiner.EMPTY_LIST;
+        childCounts[node] = 0;
+        attach(node, parent);
+        update(parent);
+        return node;
+    }
+
+    /**
+     * Removes a leaf node together with its relation.
+     * @param nodeId Id of a node which has a single relation, it cannot be root (node 0).
+     * @throws LogicViolationException If node does not exist, is root or is not a leaf.
+     */
+    public void removeLeaf(int nodeId) throws LogicViolationException{
+        checkNode(nodeId);
+        if(nodeId==0 || childCounts[nodeId]>0){
+            throw new LogicViolationException(String.format("Node %s is not a leaf.", nodeId));
+        }
+        int parent = parents[nodeId];
+        detach(nodeId);
+        parents[nodeId] = REMOVED;
+        lists[nodeId] = null;
+        children[nodeId] = null;
+        nodeCount--;
+        update(parent);
+    }
+
+    /**
+     * Replaces relation between given node and its parent with a relation to another node,
+     * so the whole subtree of given node moves under new parent.
+     * @param nodeId Id of the node to move, it cannot be root (node 0).
+     * @param newParent Id of the new parent, it cannot be in subtree of given node.
+     * @throws LogicViolationException If a node does not exist, node is root, or the move would create a cycle.
+     */
+    public void reparent(int nodeId, int newParent) throws LogicViolationException{
+        checkNode(nodeId);
+        checkNode(newParent);
+        if(nodeId==0){
+            throw new LogicViolationException("Root node cannot be moved.");
+        }
+        for(int ancestor=newParent; ancestor>=0; ancestor=parents[ancestor]){
+            if(ancestor==nodeId){
+                throw new LogicViolationException("Structure is not a tree, it has a cycle.");
+            }
+        }
+        int oldParent = parents[nodeId];
+        if(oldParent==newParent){
+            return;
+        }
+        detach(nodeId);
+        update(oldParent);
+        attach(nodeId, newParent);
+        update(newParent);
+    }
+
+    /**
+     * Gets number of nodes.
+     * @return Number of nodes.
+     */
+    public int getNodeCount(){
+        return this.nodeCount;
+    }
+
+    /**
+     * Gets parent of given node, tree being rooted at node 0.
+     * @param nodeId Node id.
+     * @return Parent node id, -1 for node 0.
+     * @throws LogicViolationException If node does not exist.
+     */
+    public int getParent(int nodeId) throws LogicViolationException{
+        checkNode(nodeId);
+        return this.parents[nodeId];
+    }
+
+    /**
+     * Gets minimum number of steps needed to unify the subtree rooted at given node, tree being rooted at node 0.
+     * @param nodeId Node id.
+     * @return Minimum number of steps.
+     * @throws LogicViolationException If node does not exist.
+     */
+    public int getSubtreeStepNumber(int nodeId) throws LogicViolationException{
+        checkNode(nodeId);
+        int[] list = this.lists[nodeId];
+        return list.length == 0 ? 0 : list[0];
+    }
+
+    /**
+     * Returns minimum number of steps to unify all nodes respecting to restrictions in Byteland Union problem.
+     * @return Minimum number of steps.
+     */
+    public int unifyAndReturnStepNumber(){
+        int[] list = this.lists[0];
+        return list.length == 0 ? 0 : list[0];
+    }
+}
@@ -1,5 +1,7 @@
 package com.sony.bytelandassessment.datastructure;
 
+import java.util.Arrays;
+
 /**
  * Node is point of information in UnionGraph.
  * @param <T> Type of information which will be stored in Node
@@ -7,6 +9,10 @@ package com.sony.bytelandassessment.datastructure;
 public class Node<T> {
     private T nodeValue;//Value
     private boolean unified=false;//Unified state in UnionGraph
+    private Relation[] links = NO_LINKS;//Relations of this node in UnionGraph.
+    private int degree = 0;//Number of relations of this node in UnionGraph.
+
+    private static final Relation[] NO_LINKS = new Relation[0];
 
     /**
      * Creates a Node object.
@@ -31,6 +37,41 @@ public class Node<T> {
     public void setUnified(boolean unified){
         this.unified = unified;
     }
+
+    /**
+     * Gets number of relations of this node in UnionGraph.
+     * @return Number of relations.
+     */
+    public int getDegree(){
+        return degree;
+    }
+
+    /**
+     * Gets a relation of this node in UnionGraph.
+     * @param linkNumber Relation number, [0, getDegree()).
+     * @return Relation object.
+     */
+    Relation getLink(int linkNumber){
+        return links[linkNumber];
+    }
+
+    void link(Relation relation){
+        if(degree==links.length){
+            links = Arrays.copyOf(links, Math.max(4, degree*2));
+        }
+        links[degree++] = relation;
+    }
+
+    void unlink(Relation relation){
+        for(int i=0; i<degree; i++){
+            if(links[i]==relation){
+                links[i] = links[--degree];
+                links[degree] = null;
+                return;
+            }
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,91 @@
+package com.sony.bytelandassessment.datastructure;
+
+import com.sony.bytelandassessment.exceptions.LogicViolationException;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Tree object which calculates minimum number of steps needed to unite all nodes of a tree, like UnionTree, when the
+ * tree is kept in int buffers instead of heap arrays (e.g. a memory-mapped GraphFile).
+ *
+ * Nodes are visited in post order, so critical lists of the children of a node are the last ones computed, and lists
+ * are kept on a stack instead of an array indexed by node. Heap use is bounded by the lists waiting on the stack,
+ * one for every solved child of a node on the current path, not by the number of nodes.
+ */
+public class OffHeapUnionTree {
+    private final int nodeCount;
+    private final int stepNumber;
+    private int maxPending = 0;
+
+    /**
+     * Creates new OffHeapUnionTree object and solves the tree.
+     * @param offsets Neighbour offsets: neighbours of node i are [offsets.get(i), offsets.get(i+1)) of targets.
+     * @param postOrder Nodes in post order of the tree rooted at node 0, every subtree right before its root.
+     * @param nodeCount Number of nodes, offsets should hold (nodeCount+1) values and postOrder nodeCount values.
+     * @throws LogicViolationException If post order does not belong to a tree.
+     */
+    public OffHeapUnionTree(IntBuffer offsets, IntBuffer postOrder, int nodeCount) throws LogicViolationException{
+        if(offsets.limit()<nodeCount + 1 || postOrder.limit()<nodeCount){
+            throw new LogicViolationException("Buffers are shorter than number of nodes.");
+        }
+        this.nodeCount = nodeCount;
+        this.stepNumber = nodeCount == 0 ? 0 : solve(offsets, postOrder);
+    }
+
+    private int solve(IntBuffer offsets, IntBuffer postOrder) throws LogicViolationException{
+        CriticalListCombiner combiner = new CriticalListCombiner();
+        int[][] pending = new int[16][];
+        int pendingCount = 0;
+        int[][] childLists = new int[4][];
+        for(int i=0; i<nodeCount; i++){
+            int node = postOrder.get(i);
+            //Every node but the root has one relation to its parent, the rest go to its children.
+            int count = offsets.get(node + 1) - offsets.get(node) - (node == 0 ? 0 : 1);
+            if(count<0 || count>pendingCount){
+                throw new LogicViolationException("Nodes are not in post order of a tree.");
+            }
+            if(childLists.length<count){
+                childLists = new int[Math.max(count, childLists.length*2)][];
+            }
+            pendingCount -= count;
+            System.arraycopy(pending, pendingCount, childLists, 0, count);
+            Arrays.fill(pending, pendingCount, pendingCount + count, null);
+            int[] list = combiner.combine(childLists, count);
+            Arrays.fill(childLists, 0, count, null);
+            if(pendingCount==pending.length){
+                pending = Arrays.copyOf(pending, pending.length*2);
+            }
+            pending[pendingCount++] = list;
+            maxPending = Math.max(maxPending, pendingCount);
+        }
+        if(pendingCount!=1){
+            throw new LogicViolationException("Nodes are not in post order of a tree.");
+        }
+        return pending[0].length == 0 ? 0 : pending[0][0];
+    }
+
+    /**
+     * Gets number of nodes.
+     * @return Number of nodes.
+     */
+    public int getNodeCount(){
+        return this.nodeCount;
+    }
+
+    /**
+     * Gets largest number of critical lists which waited for their parent at the same time.
+     * @return Number of lists.
+     */
+    public int getMaxPendingLists(){
+        return this.maxPending;
+    }
+
+    /**
+     * Returns minimum number of steps to unify all nodes respecting to restrictions in Byteland Union problem.
+     * @return Minimum number of steps.
+     */
+    public int unifyAndReturnStepNumber(){
+        return this.stepNumber;
+    }
+}
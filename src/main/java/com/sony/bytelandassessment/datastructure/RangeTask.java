@@ -0,0 +1,39 @@
+package com.sony.bytelandassessment.datastructure;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task which runs a body over a range of indices, split into parts of at most grain indices.
+ */
+class RangeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Work done on a part of the range.
+     */
+    interface Body {
+        void run(int from, int to);
+    }
+
+    private final Body body;
+    private final int from;
+    private final int to;
+    private final int grain;
+
+    RangeTask(Body body, int from, int to, int grain){
+        this.body = body;
+        this.from = from;
+        this.to = to;
+        this.grain = Math.max(grain, 1);
+    }
+
+    @Override
+    protected void compute(){
+        if(to - from <= grain){
+            body.run(from, to);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new RangeTask(body, from, middle, grain), new RangeTask(body, middle, to, grain));
+    }
+}
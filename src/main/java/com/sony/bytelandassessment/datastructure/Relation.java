@@ -38,6 +38,15 @@ public class Relation {
         return secondNode;
     }
 
+    /**
+     * Gets the node at the other end of relation.
+     * @param node Node instance at one end.
+     * @return Node object.
+     */
+    Node<Integer> getOtherNode(Node<Integer> node){
+        return node == firstNode ? secondNode : firstNode;
+    }
+
 
 
 
@@ -56,7 +65,7 @@ public class Relation {
 
     @Override
     public int hashCode() {
-        return Math.min(firstNode.getNodeValue(), secondNode.getNodeValue()) +
-                3100*Math.max(firstNode.getNodeValue(), secondNode.getNodeValue());
+        //Both ids are kept whole in the key, so hashes do not collide systematically for any range of ids.
+        return (int)(EdgeSet.mix(EdgeSet.key(firstNode.getNodeValue(), secondNode.getNodeValue())) >>> 32);
     }
 }
@@ -0,0 +1,101 @@
+package com.sony.bytelandassessment.datastructure;
+
+/**
+ * Working memory of solvers which is reused from one experiment to the next, so a long batch does not turn every
+ * experiment into garbage. Primitive arrays are kept per purpose and grow to the largest experiment seen so far;
+ * they are handed out as they are, so solvers initialize whatever part they rely on.
+ *
+ * A context serves one experiment at a time and is not thread safe; concurrent solvers need a context each.
+ * CompactUnionGraph, DisjointSetUnionGraph, UnionTree and AdjacencyArrays created over a context use its arrays, so
+ * they are valid until the context is used for another experiment.
+ */
+public class SolverContext {
+    /*
+    Array slots. Arrays of AdjacencyArrays are kept by the solver built over them, so every slot has a single user.
+     */
+    static final int ADJACENCY_OFFSETS = 0;
+    static final int ADJACENCY_TARGETS = 1;
+    static final int ADJACENCY_CURSOR = 2;
+    static final int ADJACENCY_STAMP = 3;
+    static final int GRAPH_NODE_VALUES = 4;
+    static final int GRAPH_NEXT_NODE_VALUES = 5;
+    static final int GRAPH_NEXT_OFFSETS = 6;
+    static final int GRAPH_NEXT_TARGETS = 7;
+    static final int GRAPH_PARTNER = 8;
+    static final int GRAPH_NEW_INDEX = 9;
+    static final int GRAPH_STAMP = 10;
+    static final int TREE_ROOTED_PARENTS = 11;
+    static final int TREE_ORDER = 12;
+    static final int TREE_CHILD_OFFSETS = 13;
+    static final int TREE_CHILDREN = 14;
+    static final int TREE_CURSOR = 15;
+    static final int TREE_SUBTREE_STEPS = 16;
+    static final int GRAPH_DECIDED = 17;
+    static final int GRAPH_CHOICE = 18;
+    static final int GRAPH_BLOCK_SUMS = 19;
+    static final int FOREST_PARENT = 20;
+    static final int FOREST_SET_SIZE = 21;
+    static final int FOREST_NODE_VALUES = 22;
+    static final int FOREST_DEGREE = 23;
+    static final int FOREST_HEAD = 24;
+    static final int FOREST_TAIL = 25;
+    static final int FOREST_NEXT = 26;
+    static final int FOREST_UNIFIED_ROUND = 27;
+    static final int FOREST_STAMP = 28;
+    static final int FOREST_ORDER = 29;
+    static final int GRAPH_LOST = 30;
+    private static final int SLOT_COUNT = 31;
+
+    private final int[][] arrays = new int[SLOT_COUNT][];
+    private int[][] lists = new int[0][];
+    private int[][] childLists = new int[4][];
+    private final CriticalListCombiner combiner = new CriticalListCombiner();
+
+    /**
+     * Gets array of given slot, grown to given length if needed. Contents are left from the previous user.
+     */
+    int[] ints(int slot, int length){
+        int[] array = arrays[slot];
+        if(array==null || array.length<length){
+            array = new int[array==null ? length : Math.max(length, array.length + (array.length >> 1))];
+            arrays[slot] = array;
+        }
+        return array;
+    }
+
+    /**
+     * Gets array critical lists of every node are kept in while a tree is solved.
+     */
+    int[][] lists(int length){
+        if(lists.length<length){
+            lists = new int[Math.max(length, lists.length + (lists.length >> 1))][];
+        }
+        return lists;
+    }
+
+    /**
+     * Gets array critical lists of children of a node are gathered in.
+     */
+    int[][] childLists(int length){
+        if(childLists.length<length){
+            childLists = new int[Math.max(length, childLists.length*2)][];
+        }
+        return childLists;
+    }
+
+    CriticalListCombiner getCombiner(){
+        return this.combiner;
+    }
+
+    /**
+     * Gets number of bytes held by arrays of this context.
+     * @return Number of bytes, references counted as 4 bytes.
+     */
+    public long getRetainedBytes(){
+        long bytes = 4L*(lists.length + childLists.length);
+        for(int[] array: arrays){
+            bytes += array == null ? 0 : 4L*array.length;
+        }
+        return bytes;
+    }
+}
@@ -2,6 +2,7 @@ package com.sony.bytelandassessment.datastructure;
 
 import com.sony.bytelandassessment.exceptions.LogicViolationException;
 import com.sony.bytelandassessment.exceptions.NotUnifiableException;
+import com.sony.bytelandassessment.metrics.SolverMetrics;
 
 import java.util.*;
 
@@ -10,6 +11,17 @@ import java.util.*;
  * This class uses graph theory principles in order to give solution.
  */
 public class UnionGraph {
+    /**
+     * Ascending node id, the order nodes are visited and ties between candidates are resolved in by default, as
+     * CompactUnionGraph and DisjointSetUnionGraph do.
+     */
+    public static final Comparator<Node<Integer>> BY_NODE_ID = new Comparator<Node<Integer>>() {
+        @Override
+        public int compare(Node<Integer> first, Node<Integer> second) {
+            return first.getNodeValue().compareTo(second.getNodeValue());
+        }
+    };
+
     private int unificationStep = 0;
     private List<List<Integer>> adjacencyMatrix;
     private boolean graphBuilt = false;
@@ -26,8 +38,15 @@ public class UnionGraph {
         this.adjacencyMatrix = adjacencyMatrix;
         buildGraph();
     }
-    private Set<Relation> relations;
+    private EdgeSet relations;
     private Set<Node<Integer>> nodes;
+    private Node<Integer>[] nodeIndex;//Canonical node instances keyed by node id.
+    private int roundCount = 0;
+    private int[] roundNodesRemaining = new int[8];//Number of nodes left after every round.
+    private int[] roundMerges = new int[8];//Number of merges performed in every round.
+    private SolverMetrics metrics = SolverMetrics.NO_OP;
+    private Comparator<Node<Integer>> nodeOrder = BY_NODE_ID;
+    private Comparator<Node<Integer>> candidateOrder = BY_NODE_ID;
 
     /**
      * Sets adjacency matrix and build graph respecting to the adjacency matrix.
@@ -42,39 +61,47 @@ public class UnionGraph {
         if(this.adjacencyMatrix==null){
             throw new NullPointerException("Adjacency matrix is not set yet.");
         }
-        this.relations = new HashSet<Relation>();//Fresh relations.
+        this.relations = new EdgeSet(adjacencyMatrix.size());//Fresh relations.
         this.nodes = new HashSet<Node<Integer>>();//Fresh nodes.
+        this.nodeIndex = newNodeIndex(adjacencyMatrix.size());//Fresh index.
         for(int i = 0; i<adjacencyMatrix.size(); i++){
             List<Integer> currentRow = adjacencyMatrix.get(i);
-            Node<Integer> firstNode = new Node<Integer>(i);
-            addNode(firstNode);
+            addNode(new Node<Integer>(i));
             for(Integer second: currentRow){
-                Node<Integer> secondNode = new Node<Integer>(second);
-                addNode(secondNode);
+                addNode(new Node<Integer>(second));
                 //Checking if there is connection loop
-                if(!firstNode.equals(secondNode))
+                if(i != second)
                     //Nodes are retrieved from context because address blocks should be same as node object itself.
-                    addRelation(new Relation(retrieveNode(firstNode), retrieveNode(secondNode)));//Adds nodes and relations
+                    addRelation(new Relation(retrieveNode(i), retrieveNode(second)));//Adds nodes and relations
             }
         }
     }
+
+    @SuppressWarnings("unchecked")
+    private static Node<Integer>[] newNodeIndex(int capacity){
+        return (Node<Integer>[]) new Node<?>[Math.max(capacity, 1)];
+    }
+
+    private boolean isIndexable(int nodeId){
+        return nodeId >= 0;
+    }
+
     private Node<Integer> getBestNodeToUnify(Node<Integer> node){
         /*
-        Cost is calculated respecting to number of relations of neighbour.
+        Cost is calculated respecting to number of relations of neighbour, which every node keeps count of.
+        Ties are resolved in favour of the first candidate in candidate order.
          */
-        Integer minCost=null;
+        int minCost = Integer.MAX_VALUE;
         Node<Integer> nodeWithMinCost = null;
-        List<Node<Integer>> neighbours = getNotUnifiedNeighbours(node);
-        //Find minimum costed Node.
-        for(Node<Integer> currentNode: neighbours){
-            int numberOfNeighbours = getNeighbours(currentNode).size();
-            if(minCost==null){
-                minCost=numberOfNeighbours;
-                nodeWithMinCost = currentNode;
-            }
-            else if(numberOfNeighbours<minCost){
-                minCost=numberOfNeighbours;
-                nodeWithMinCost = currentNode;
+        for(int k=0; k<node.getDegree(); k++){
+            Node<Integer> currentNode = node.getLink(k).getOtherNode(node);
+            if(!currentNode.isUnified()){
+                int numberOfNeighbours = currentNode.getDegree();
+                if(numberOfNeighbours<minCost ||
+                        (numberOfNeighbours==minCost && candidateOrder.compare(currentNode, nodeWithMinCost)<0)){
+                    minCost = numberOfNeighbours;
+                    nodeWithMinCost = currentNode;
+                }
             }
         }
         return nodeWithMinCost;
@@ -86,7 +113,10 @@ public class UnionGraph {
      * @return
      */
     public Node<Integer> retrieveNode(int nodeId){
-        return retrieveNode(new Node<Integer>(nodeId));
+        if(!isIndexable(nodeId)){
+            return retrieveNode(new Node<Integer>(nodeId));
+        }
+        return nodeId < nodeIndex.length ? nodeIndex[nodeId] : null;
     }
 
     /**
@@ -95,6 +125,10 @@ public class UnionGraph {
      * @return
      */
     public Node<Integer> retrieveNode(Node<Integer> node){
+        if(isIndexable(node.getNodeValue())){
+            return retrieveNode(node.getNodeValue().intValue());
+        }
+        //Negative ids are not indexed, they are searched linearly.
         Node<Integer> foundNode = null;
         for(Node<Integer> currentNode: getNodes()){
             if(currentNode.equals(node)){
@@ -110,9 +144,22 @@ public class UnionGraph {
      * @param relation
      */
     public void addRelation(Relation relation){
-        if(retrieveNode(relation.getFirstNode())==null||retrieveNode(relation.getSecondNode())==null)
+        Node<Integer> firstNode = retrieveNode(relation.getFirstNode());
+        Node<Integer> secondNode = retrieveNode(relation.getSecondNode());
+        if(firstNode==null||secondNode==null)
             throw new NullPointerException("One of the nodes is not found.");
-        this.relations.add(relation);
+        if(firstNode!=relation.getFirstNode()||secondNode!=relation.getSecondNode()){
+            //Relations are kept between node instances of the context.
+            try {
+                relation = new Relation(firstNode, secondNode);
+            } catch (LogicViolationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        if(this.relations.add(relation)){
+            firstNode.link(relation);
+            secondNode.link(relation);
+        }
     }
 
     /**
@@ -124,11 +171,12 @@ public class UnionGraph {
     }
 
     /**
-     * Get relations of context.
+     * Get relations of context. Set is a read-only view, relations are changed by unification only, which keeps
+     * links and degrees of nodes consistent with them.
      * @return Set of Relation object.
      */
     public Set<Relation> getRelations(){
-        return this.relations;
+        return Collections.unmodifiableSet(this.relations);
     }
 
     /**
@@ -136,19 +184,33 @@ public class UnionGraph {
      * @param node Node object.
      */
     public void addNode(Node<Integer> node){
-        this.nodes.add(node);
+        if(!this.nodes.add(node)){
+            return;
+        }
+        if(isIndexable(node.getNodeValue())){
+            int nodeId = node.getNodeValue();
+            if(nodeId >= nodeIndex.length){
+                nodeIndex = Arrays.copyOf(nodeIndex, Math.max(nodeId + 1, nodeIndex.length * 2));
+            }
+            nodeIndex[nodeId] = node;
+        }
     }
     /**
      * Removes a node from context.
      * @param node Node object.
      */
     public void removeNode(Node<Integer> node){
-        for(Relation relation:new HashSet<Relation>(getRelations())){
-            if(relation.getFirstNode().equals(node)||relation.getSecondNode().equals(node)){
-                removeRelation(relation);
+        Node<Integer> contextNode = retrieveNode(node);
+        if(contextNode!=null){
+            while(contextNode.getDegree()>0){
+                removeRelation(contextNode.getLink(contextNode.getDegree()-1));
+            }
+        }
+        if(this.nodes.remove(node)){
+            if(isIndexable(node.getNodeValue())){
+                nodeIndex[node.getNodeValue()] = null;
             }
         }
-        this.nodes.remove(node);
     }
 
     /**
@@ -156,37 +218,68 @@ public class UnionGraph {
      * @param relation Relation object.
      */
     public void removeRelation(Relation relation){
-        this.relations.remove(relation);
+        Relation contextRelation = this.relations.remove(relation.getFirstNode().getNodeValue(),
+                relation.getSecondNode().getNodeValue());
+        if(contextRelation!=null){
+            contextRelation.getFirstNode().unlink(contextRelation);
+            contextRelation.getSecondNode().unlink(contextRelation);
+        }
     }
-    private List<Node<Integer>> getNeighbours(Node<Integer> node){
-        List<Node<Integer>> neighbours = new ArrayList<Node<Integer>>();
-        for(Relation relation: this.relations){
-            if(relation.getFirstNode().equals(node)){
-                neighbours.add(relation.getSecondNode());
-            }
-            else if(relation.getSecondNode().equals(node)){
-                neighbours.add(relation.getFirstNode());
-            }
+    /**
+     * Sets order nodes are visited in by every round. Step number depends on the order. By default nodes are visited
+     * in ascending node id, whatever ids hash to and whatever order relations are given in. The original solution
+     * visited them in the order of a HashSet copy of the node set, so its step numbers may differ, for example 3
+     * instead of 4 for the path given by parents "0 7 1 3 2 5 4".
+     * @param nodeOrder Node order, ties are visited in ascending node id. Null for ascending node id.
+     */
+    public void setNodeOrder(Comparator<Node<Integer>> nodeOrder){
+        this.nodeOrder = nodeOrder==null ? BY_NODE_ID : nodeOrder;
+    }
+
+    /**
+     * Sets order ties between candidates of a node are resolved in. Candidate with the fewest relations is unified
+     * with the node, and if there are several, the first one in candidate order, which is ascending node id by
+     * default.
+     * @param candidateOrder Candidate order, null for ascending node id.
+     */
+    public void setCandidateOrder(Comparator<Node<Integer>> candidateOrder){
+        this.candidateOrder = candidateOrder==null ? BY_NODE_ID : candidateOrder;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<Integer>[] sortedNodes(){
+        Node<Integer>[] sorted = getNodes().toArray((Node<Integer>[]) new Node<?>[getNodes().size()]);
+        Arrays.sort(sorted, BY_NODE_ID);
+        if(nodeOrder!=BY_NODE_ID){
+            Arrays.sort(sorted, nodeOrder);//Stable, so ties stay in id order.
         }
-        return neighbours;
+        return sorted;
     }
-    private List<Node<Integer>> getNotUnifiedNeighbours(Node<Integer> node){
-        //Searches for not unified nodes.
-        List<Node<Integer>> neighbours = new ArrayList<Node<Integer>>();
-        for(Relation relation: this.relations){
-            if(relation.getFirstNode().equals(node)&&!relation.getSecondNode().isUnified()){
-                neighbours.add(relation.getSecondNode());
-            }
-            else if(relation.getSecondNode().equals(node)&&!relation.getFirstNode().isUnified()){
-                neighbours.add(relation.getFirstNode());
-            }
+
+    private boolean isInGraph(Node<Integer> node){
+        if(isIndexable(node.getNodeValue())){
+            int nodeId = node.getNodeValue();
+            return nodeId < nodeIndex.length && nodeIndex[nodeId] == node;
         }
-        return neighbours;
+        return this.nodes.contains(node);
     }
-    private void clearUnifiedState(){
-        for(Node<Integer> node: nodes){
-            node.setUnified(false);
+
+    /**
+     * Drops nodes unified into others from round order and clears unified state of the rest.
+     * Nodes which are left keep their relative order, so the array stays sorted.
+     * @return Number of nodes left in round order.
+     */
+    private int retainNodesInGraph(Node<Integer>[] roundNodes, int roundSize){
+        int retained = 0;
+        for(int i=0; i<roundSize; i++){
+            Node<Integer> node = roundNodes[i];
+            if(isInGraph(node)){
+                node.setUnified(false);
+                roundNodes[retained++] = node;
+            }
         }
+        Arrays.fill(roundNodes, retained, roundSize, null);
+        return retained;
     }
 
     /**
@@ -196,37 +289,104 @@ public class UnionGraph {
      * @throws LogicViolationException
      */
     public int unifyAndReturnStepNumber() throws NotUnifiableException, LogicViolationException{
-        /*
-        If there is no relation left, and there are multiple nodes, structure is not unifiable.
-         */
-        if(getNodes().size()>1 && getRelations().size()==0){
-            throw new NotUnifiableException("This structure is not unifiable.");
-        }
-        if(getNodes().size()==1){
-            return this.unificationStep;
-        }
-        else {
-            Set<Node<Integer>> copyOfNodes = new HashSet<Node<Integer>>(nodes);
-            for(Node<Integer> node:copyOfNodes){
+        //Nodes in visiting order, compacted after every round.
+        Node<Integer>[] roundNodes = sortedNodes();
+        int roundSize = roundNodes.length;
+        while(getNodes().size()>1){
+            /*
+            If there is no relation left, and there are multiple nodes, structure is not unifiable.
+             */
+            if(getRelations().size()==0){
+                throw new NotUnifiableException("This structure is not unifiable.");
+            }
+            int merges = 0;
+            boolean timed = metrics != SolverMetrics.NO_OP;
+            long selectionNanos = 0;
+            long mergeNanos = 0;
+            for(int i=0; i<roundSize; i++){
+                Node<Integer> node = roundNodes[i];
                 if(!node.isUnified()){
+                    long start = timed ? System.nanoTime() : 0;
                     Node<Integer> otherNode = getBestNodeToUnify(node);
+                    if(timed){
+                        long now = System.nanoTime();
+                        selectionNanos += now - start;
+                        start = now;
+                    }
                     if(otherNode != null){
                         node.setUnified(true);
                         otherNode.setUnified(true);
                         unifyNodes(node, otherNode);
+                        merges++;
+                        if(timed){
+                            mergeNanos += System.nanoTime() - start;
+                        }
                     }
                 }
             }
-            clearUnifiedState();
+            roundSize = retainNodesInGraph(roundNodes, roundSize);
             this.unificationStep++;
-            return unifyAndReturnStepNumber();
+            recordRound(getNodes().size(), merges);
+            metrics.roundFinished(getNodes().size(), merges, getRelations().size(), selectionNanos, mergeNanos);
+        }
+        return this.unificationStep;
+    }
+
+    /**
+     * Sets metrics every unification round is reported to.
+     * @param metrics Metrics, SolverMetrics.NO_OP to disable.
+     */
+    public void setMetrics(SolverMetrics metrics){
+        this.metrics = metrics;
+    }
+
+    private void recordRound(int nodesRemaining, int merges){
+        if(roundCount==roundNodesRemaining.length){
+            roundNodesRemaining = Arrays.copyOf(roundNodesRemaining, roundCount*2);
+            roundMerges = Arrays.copyOf(roundMerges, roundCount*2);
+        }
+        roundNodesRemaining[roundCount] = nodesRemaining;
+        roundMerges[roundCount] = merges;
+        roundCount++;
+    }
+
+    /**
+     * Gets number of unification rounds performed so far.
+     * @return Number of rounds.
+     */
+    public int getRoundCount(){
+        return this.roundCount;
+    }
+
+    /**
+     * Gets number of nodes left after given round.
+     * @param round Round number, [0, getRoundCount()).
+     * @return Number of nodes.
+     */
+    public int getNodesRemaining(int round){
+        if(round<0 || round>=roundCount){
+            throw new IndexOutOfBoundsException(String.format("Round %s is not performed.", round));
+        }
+        return this.roundNodesRemaining[round];
+    }
+
+    /**
+     * Gets number of merges performed in given round.
+     * @param round Round number, [0, getRoundCount()).
+     * @return Number of merges.
+     */
+    public int getMergesPerformed(int round){
+        if(round<0 || round>=roundCount){
+            throw new IndexOutOfBoundsException(String.format("Round %s is not performed.", round));
         }
+        return this.roundMerges[round];
     }
     private void unifyNodes(Node<Integer> firstNode, Node<Integer> secondNode) throws LogicViolationException{
         if(firstNode.equals(secondNode)){
             throw new LogicViolationException("First and second node are same");
         }
-        for(Node node: getNeighbours(secondNode)){
+        for(int k=0; k<secondNode.getDegree(); k++){
+            Node<Integer> node = secondNode.getLink(k).getOtherNode(secondNode);
             if(!firstNode.equals(node))
                 addRelation(new Relation(firstNode, node));
         }
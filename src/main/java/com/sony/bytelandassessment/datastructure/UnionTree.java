@@ -0,0 +1,245 @@
+package com.sony.bytelandassessment.datastructure;
+
+import com.sony.bytelandassessment.exceptions.LogicViolationException;
+import com.sony.bytelandassessment.exceptions.NotUnifiableException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tree object which calculates minimum number of steps needed to unite all nodes of a tree.
+ *
+ * Instead of simulating unification rounds, steps are treated as ranks of relations: a relation unified at step s
+ * needs every pair of relations which share step s to be separated by a relation of a later step. Minimum number of
+ * steps is the smallest possible maximum rank. Tree is rooted at node 0 and solved by a single bottom-up pass:
+ * every subtree is summarized by the ranks which are still visible from its root (critical list), and critical
+ * lists of children are combined at their parent greedily from the highest rank to the lowest.
+ *
+ * Memory is linear in number of nodes and total critical list length. Combining d children whose critical lists
+ * reach rank h takes time linear in d, in total length of their lists and in h (times log h for deficit updates),
+ * plus a lookahead over the levels below h. Lookahead results are reused down to the level they report, which keeps
+ * total time near linear on paths, stars, spiders, caterpillars and random trees (10^6 nodes in well under a second),
+ * but it is not a worst case bound: every child can make the lookahead walk the levels again, O(d*h) per node.
+ * Working arrays can be taken from a SolverContext, then getters are valid until the context is used for another
+ * experiment.
+ */
+public class UnionTree {
+    private int nodeCount;
+    private int[] rootedParents;//Parent of every node when tree is rooted at node 0, -1 for root.
+    private int[] parentLinks;//Parent links given by caller, used instead of rootedParents when they are rooted at 0.
+    private int[] order;//Breadth first order from root, null when node ids are already in top-down order.
+    private int[] childOffsets;
+    private int[] children;
+    private int[] subtreeSteps;
+    private final SolverContext context;
+
+    /**
+     * Creates new UnionTree object from parent links, which is the fashion experiments are given:
+     * city (i+1) is connected to city parents[i].
+     * If every city is linked to a city with smaller id, links are used as they are (array is not copied and should
+     * not be modified afterwards), otherwise tree is rooted by a breadth first search.
+     * @param parents Parent links.
+     * @param numOfCities Number of cities, parents should hold at least (numOfCities-1) values.
+     * @throws LogicViolationException
+     * @throws NotUnifiableException
+     */
+    public UnionTree(int[] parents, int numOfCities) throws LogicViolationException, NotUnifiableException{
+        this(parents, numOfCities, new SolverContext());
+    }
+
+    /**
+     * Creates new UnionTree object from parent links, working in arrays of given context.
+     * @param parents Parent links.
+     * @param numOfCities Number of cities, parents should hold at least (numOfCities-1) values.
+     * @param context Solver context.
+     * @throws LogicViolationException
+     * @throws NotUnifiableException
+     */
+    public UnionTree(int[] parents, int numOfCities, SolverContext context)
+            throws LogicViolationException, NotUnifiableException{
+        this.context = context;
+        if(isRootedAtZero(parents, numOfCities)){
+            allocate(numOfCities);
+            this.parentLinks = parents;
+            groupChildren(parents, numOfCities);
+            solve();
+        }
+        else {
+            initialize(AdjacencyArrays.fromParents(parents, numOfCities, context));
+        }
+    }
+
+    /**
+     * Creates new UnionTree object with given adjacency matrix, in the fashion UnionGraph uses.
+     * @param adjacencyMatrix Adjacency matrix.
+     * @throws LogicViolationException
+     * @throws NotUnifiableException
+     */
+    public UnionTree(List<List<Integer>> adjacencyMatrix) throws LogicViolationException, NotUnifiableException{
+        this(adjacencyMatrix, new SolverContext());
+    }
+
+    /**
+     * Creates new UnionTree object with given adjacency matrix, working in arrays of given context.
+     * @param adjacencyMatrix Adjacency matrix.
+     * @param context Solver context.
+     * @throws LogicViolationException
+     * @throws NotUnifiableException
+     */
+    public UnionTree(List<List<Integer>> adjacencyMatrix, SolverContext context)
+            throws LogicViolationException, NotUnifiableException{
+        this.context = context;
+        initialize(AdjacencyArrays.fromMatrix(adjacencyMatrix, context));
+    }
+
+    /**
+     * Creates new UnionTree object over given adjacency arrays.
+     * @param adjacency Adjacency arrays which should represent a tree.
+     * @throws LogicViolationException If structure has a cycle.
+     * @throws NotUnifiableException If structure is disconnected.
+     */
+    public UnionTree(AdjacencyArrays adjacency) throws LogicViolationException, NotUnifiableException{
+        this.context = new SolverContext();
+        initialize(adjacency);
+    }
+
+    private static boolean isRootedAtZero(int[] parents, int numOfCities){
+        for(int i=0; i<numOfCities-1; i++){
+            if(parents[i]<0 || parents[i]>i){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void allocate(int numOfCities){
+        this.nodeCount = numOfCities;
+        this.childOffsets = context.ints(SolverContext.TREE_CHILD_OFFSETS, nodeCount + 1);
+        Arrays.fill(this.childOffsets, 0, nodeCount + 1, 0);
+        this.children = context.ints(SolverContext.TREE_CHILDREN, Math.max(nodeCount - 1, 0));
+        this.subtreeSteps = context.ints(SolverContext.TREE_SUBTREE_STEPS, nodeCount);
+    }
+
+    private void initialize(AdjacencyArrays adjacency) throws LogicViolationException, NotUnifiableException{
+        allocate(adjacency.getNodeCount());
+        if(nodeCount>0){
+            root(adjacency);
+            solve();
+        }
+    }
+
+    private void root(AdjacencyArrays adjacency) throws LogicViolationException, NotUnifiableException{
+        int[] offsets = adjacency.getOffsets();
+        int[] targets = adjacency.getTargets();
+        if(adjacency.getRelationCount() > nodeCount-1){
+            throw new LogicViolationException("Structure is not a tree, it has a cycle.");
+        }
+        this.rootedParents = context.ints(SolverContext.TREE_ROOTED_PARENTS, nodeCount);
+        this.order = context.ints(SolverContext.TREE_ORDER, nodeCount);
+        Arrays.fill(rootedParents, 0, nodeCount, -2);
+        rootedParents[0] = -1;
+        order[0] = 0;
+        int tail = 1;
+        for(int head=0; head<tail; head++){
+            int node = order[head];
+            for(int k=offsets[node]; k<offsets[node+1]; k++){
+                int neighbour = targets[k];
+                if(rootedParents[neighbour]==-2){
+                    rootedParents[neighbour] = node;
+                    order[tail++] = neighbour;
+                }
+            }
+        }
+        if(tail<nodeCount){
+            throw new NotUnifiableException("This structure is not unifiable.");
+        }
+        for(int i=1; i<nodeCount; i++){
+            childOffsets[rootedParents[order[i]] + 1]++;
+        }
+        for(int i=0; i<nodeCount; i++){
+            childOffsets[i+1] += childOffsets[i];
+        }
+        int[] cursor = context.ints(SolverContext.TREE_CURSOR, nodeCount);
+        System.arraycopy(childOffsets, 0, cursor, 0, nodeCount);
+        for(int i=1; i<nodeCount; i++){
+            int node = order[i];
+            children[cursor[rootedParents[node]]++] = node;
+        }
+    }
+
+    /**
+     * Groups children per parent when node (i+1) has parent links[i] with smaller id.
+     */
+    private void groupChildren(int[] links, int numOfCities){
+        for(int i=0; i<numOfCities-1; i++){
+            childOffsets[links[i] + 1]++;
+        }
+        for(int i=0; i<numOfCities; i++){
+            childOffsets[i+1] += childOffsets[i];
+        }
+        int[] cursor = context.ints(SolverContext.TREE_CURSOR, numOfCities);
+        System.arraycopy(childOffsets, 0, cursor, 0, numOfCities);
+        for(int i=0; i<numOfCities-1; i++){
+            children[cursor[links[i]]++] = i+1;
+        }
+    }
+
+    private void solve() throws LogicViolationException{
+        int[][] lists = context.lists(nodeCount);
+        CriticalListCombiner combiner = context.getCombiner();
+        for(int i=nodeCount-1; i>=0; i--){
+            int node = order == null ? i : order[i];
+            int count = childOffsets[node+1] - childOffsets[node];
+            int[][] childLists = context.childLists(count);
+            for(int k=0; k<count; k++){
+                int child = children[childOffsets[node] + k];
+                childLists[k] = lists[child];
+                lists[child] = null;//Child lists are not needed anymore.
+            }
+            int[] list = combiner.combine(childLists, count);
+            Arrays.fill(childLists, 0, count, null);
+            lists[node] = list;
+            subtreeSteps[node] = list.length == 0 ? 0 : list[0];
+        }
+        if(nodeCount>0){
+            lists[order == null ? 0 : order[0]] = null;
+        }
+    }
+
+    /**
+     * Gets number of nodes.
+     * @return Number of nodes.
+     */
+    public int getNodeCount(){
+        return this.nodeCount;
+    }
+
+    /**
+     * Gets minimum number of steps needed to unify the subtree rooted at given node, tree being rooted at node 0.
+     * @param nodeId Node id.
+     * @return Minimum number of steps.
+     */
+    public int getSubtreeStepNumber(int nodeId){
+        return this.subtreeSteps[nodeId];
+    }
+
+    /**
+     * Gets parent of given node when tree is rooted at node 0.
+     * @param nodeId Node id.
+     * @return Parent node id, -1 for node 0.
+     */
+    public int getRootedParent(int nodeId){
+        if(this.rootedParents == null){
+            return nodeId == 0 ? -1 : this.parentLinks[nodeId-1];
+        }
+        return this.rootedParents[nodeId];
+    }
+
+    /**
+     * Returns minimum number of steps to unify all nodes respecting to restrictions in Byteland Union problem.
+     * @return Minimum number of steps.
+     */
+    public int unifyAndReturnStepNumber(){
+        return this.nodeCount == 0 ? 0 : this.subtreeSteps[0];
+    }
+}
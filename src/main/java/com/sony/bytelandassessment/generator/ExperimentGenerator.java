@@ -0,0 +1,138 @@
+package com.sony.bytelandassessment.generator;
+
+import java.io.BufferedOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+/**
+ * Seeded generator of experiments in input fashion, e.g. "0 1 2" for a path of 4 cities.
+ * Same seed always gives the same sequence of experiments, so a failing experiment can be reproduced from its seed.
+ *
+ * It can also be run to write a whole batch to stdout, which can be fed to Main as load:
+ *      --shape=SHAPE       Tree shape (path, star, binary, random_recursive, caterpillar), random_recursive by default.
+ *      --cities=N          Number of cities of every experiment, 600 by default.
+ *      --count=N           Number of experiments, 999 by default.
+ *      --seed=N            Seed, 0 by default.
+ *      --shuffle           Cities other than 0 are renumbered randomly, so parents are not always before children.
+ */
+public class ExperimentGenerator {
+    private final TreeShape shape;
+    private final Random random;
+    private final boolean shuffle;
+
+    /**
+     * Creates generator.
+     * @param shape Tree shape.
+     * @param seed Seed.
+     * @param shuffle True if cities other than 0 should be renumbered randomly.
+     */
+    public ExperimentGenerator(TreeShape shape, long seed, boolean shuffle){
+        this.shape = shape;
+        this.random = new Random(seed);
+        this.shuffle = shuffle;
+    }
+
+    /**
+     * Generates parent links of next experiment.
+     * @param numOfCities Number of cities, at least 2.
+     * @return Parent links, (numOfCities-1) values.
+     */
+    public int[] nextParents(int numOfCities){
+        int[] parents = shape.generate(numOfCities, random.nextLong());
+        return shuffle ? renumber(parents, random) : parents;
+    }
+
+    /**
+     * Generates next experiment in input fashion.
+     * @param numOfCities Number of cities, at least 2.
+     * @return Parent links string.
+     */
+    public String nextExperiment(int numOfCities){
+        return toParentString(nextParents(numOfCities));
+    }
+
+    /**
+     * Formats parent links in input fashion, values separated by single spaces.
+     * @param parents Parent links.
+     * @return Parent links string.
+     */
+    public static String toParentString(int[] parents){
+        StringBuilder builder = new StringBuilder(parents.length*4);
+        for(int i=0; i<parents.length; i++){
+            if(i>0){
+                builder.append(' ');
+            }
+            builder.append(parents[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Renumbers cities other than 0 randomly. Since city 0 is kept, tree stays expressible by parent links.
+     * @param parents Parent links of a tree rooted at city 0.
+     * @param random Random source.
+     * @return Parent links of the same tree with renumbered cities.
+     */
+    public static int[] renumber(int[] parents, Random random){
+        int numOfCities = parents.length + 1;
+        int[] permutation = new int[numOfCities];
+        for(int i=0; i<numOfCities; i++){
+            permutation[i] = i;
+        }
+        for(int i=numOfCities-1; i>1; i--){
+            int other = 1 + random.nextInt(i);
+            int swap = permutation[i]; permutation[i] = permutation[other]; permutation[other] = swap;
+        }
+        int[] renumbered = new int[parents.length];
+        for(int city=1; city<numOfCities; city++){
+            renumbered[permutation[city] - 1] = permutation[parents[city - 1]];
+        }
+        return renumbered;
+    }
+
+    public static void main(String[] args){
+        TreeShape shape = TreeShape.RANDOM_RECURSIVE;
+        int numOfCities = 600;
+        int count = 999;
+        long seed = 0;
+        boolean shuffle = false;
+        try {
+            for(String arg: args){
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if(arg.startsWith("--shape=")){
+                    shape = TreeShape.valueOf(value.toUpperCase());
+                }
+                else if(arg.startsWith("--cities=")){
+                    numOfCities = Integer.parseInt(value);
+                }
+                else if(arg.startsWith("--count=")){
+                    count = Integer.parseInt(value);
+                }
+                else if(arg.startsWith("--seed=")){
+                    seed = Long.parseLong(value);
+                }
+                else if(arg.equals("--shuffle")){
+                    shuffle = true;
+                }
+                else {
+                    throw new IllegalArgumentException(String.format("Unknown option %s", arg));
+                }
+            }
+            if(numOfCities<2){
+                throw new IllegalArgumentException("Number of cities should be at least 2.");
+            }
+        }
+        catch (IllegalArgumentException e){
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        ExperimentGenerator generator = new ExperimentGenerator(shape, seed, shuffle);
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+        out.println(count);
+        for(int i=0; i<count; i++){
+            out.println(numOfCities);
+            out.println(generator.nextExperiment(numOfCities));
+        }
+        out.flush();
+    }
+}
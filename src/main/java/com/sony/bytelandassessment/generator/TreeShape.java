@@ -0,0 +1,76 @@
+package com.sony.bytelandassessment.generator;
+
+import java.util.Random;
+
+/**
+ * Tree shapes which experiments can be generated in.
+ * Trees are given by parent links, the fashion experiments are given: city (i+1) is connected to city parents[i].
+ */
+public enum TreeShape {
+    /**
+     * Every city is connected to the previous one.
+     */
+    PATH {
+        @Override
+        protected int parentOf(int city, int numOfCities, Random random) {
+            return city - 1;
+        }
+    },
+    /**
+     * Every city is connected to city 0.
+     */
+    STAR {
+        @Override
+        protected int parentOf(int city, int numOfCities, Random random) {
+            return 0;
+        }
+    },
+    /**
+     * Balanced binary tree, city c is connected to city (c-1)/2.
+     */
+    BINARY {
+        @Override
+        protected int parentOf(int city, int numOfCities, Random random) {
+            return (city - 1)/2;
+        }
+    },
+    /**
+     * Random recursive tree, every city is connected to a uniformly chosen city before it.
+     */
+    RANDOM_RECURSIVE {
+        @Override
+        protected int parentOf(int city, int numOfCities, Random random) {
+            return random.nextInt(city);
+        }
+    },
+    /**
+     * Path of (numOfCities+1)/2 cities, every other city hangs on a uniformly chosen city of the path.
+     */
+    CATERPILLAR {
+        @Override
+        protected int parentOf(int city, int numOfCities, Random random) {
+            int spineLength = (numOfCities + 1)/2;
+            return city < spineLength ? city - 1 : random.nextInt(spineLength);
+        }
+    };
+
+    protected abstract int parentOf(int city, int numOfCities, Random random);
+
+    /**
+     * Generates parent links of a tree in this shape.
+     * @param numOfCities Number of cities, at least 2.
+     * @param seed Seed of random choices, same seed always gives the same tree.
+     * @return Parent links, (numOfCities-1) values.
+     */
+    public int[] generate(int numOfCities, long seed){
+        if(numOfCities<2){
+            throw new IllegalArgumentException("Number of cities should be at least 2.");
+        }
+        Random random = new Random(seed);
+        int[] parents = new int[numOfCities - 1];
+        for(int city=1; city<numOfCities; city++){
+            parents[city - 1] = parentOf(city, numOfCities, random);
+        }
+        return parents;
+    }
+}
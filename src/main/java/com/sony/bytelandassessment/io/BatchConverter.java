@@ -0,0 +1,170 @@
+package com.sony.bytelandassessment.io;
+
+import com.sony.bytelandassessment.exceptions.WrongInputException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Converts experiment batches between text and binary formats, or prepares a graph file out of a single experiment:
+ *      --to-binary TEXT_FILE BINARY_FILE
+ *      --to-text BINARY_FILE TEXT_FILE
+ *      --to-graph TEXT_FILE GRAPH_FILE
+ */
+public class BatchConverter {
+
+    /**
+     * Converts a text batch into binary format. Every experiment should hold (number of cities - 1) parent links.
+     * If the text batch is malformed, no binary file is left behind.
+     * @param source Text batch file.
+     * @param target Binary batch file.
+     * @return Number of experiments converted.
+     * @throws IOException
+     * @throws WrongInputException If text batch is malformed.
+     */
+    public static int toBinary(Path source, Path target) throws IOException, WrongInputException{
+        FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+        try {
+            IntTokenizer tokenizer = new IntTokenizer(channel);
+            int count = tokenizer.nextInt();
+            int[] parents = new int[16];
+            BinaryBatchWriter writer = new BinaryBatchWriter(target, count);
+            boolean complete = false;
+            try {
+                for(int i=0; i<count; i++){
+                    int numOfCities = tokenizer.nextInt();
+                    if(numOfCities<1){
+                        throw new WrongInputException(String.format("Experiment %s: number of cities should be positive.", i));
+                    }
+                    if(parents.length<numOfCities - 1){
+                        parents = new int[Math.max(numOfCities - 1, parents.length*2)];
+                    }
+                    int length = tokenizer.readLine(parents);
+                    if(length!=numOfCities - 1){
+                        throw new WrongInputException(String.format("Experiment %s: number of relations should be equal to %s",
+                                i, numOfCities - 1));
+                    }
+                    writer.write(numOfCities, parents);
+                }
+                complete = true;
+            }
+            finally {
+                if(complete){
+                    writer.close();
+                }
+                else {
+                    writer.abort();//Count of experiments is not checked, so the parsing error is the one reported.
+                }
+            }
+            return count;
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Converts a binary batch into text format.
+     * @param source Binary batch file.
+     * @param target Text batch file.
+     * @return Number of experiments converted.
+     * @throws IOException
+     * @throws WrongInputException If binary batch is corrupt.
+     */
+    public static int toText(Path source, Path target) throws IOException, WrongInputException{
+        BinaryBatchFile file = BinaryBatchFile.open(source);
+        try {
+            OutputStream stream = Files.newOutputStream(target);
+            PrintStream out = new PrintStream(new BufferedOutputStream(stream, 1 << 16), false);
+            try {
+                out.println(file.getExperimentCount());
+                int[] parents = new int[16];
+                StringBuilder line = new StringBuilder();
+                for(int i=0; i<file.getExperimentCount(); i++){
+                    int numOfCities = file.getNumOfCities(i);
+                    if(parents.length<numOfCities - 1){
+                        parents = new int[Math.max(numOfCities - 1, parents.length*2)];
+                    }
+                    int length = file.readParents(i, parents);
+                    if(length!=numOfCities - 1){
+                        throw new WrongInputException(String.format("Experiment %s is corrupt.", i));
+                    }
+                    line.setLength(0);
+                    for(int k=0; k<length; k++){
+                        if(k>0){
+                            line.append(' ');
+                        }
+                        line.append(parents[k]);
+                    }
+                    out.println(numOfCities);
+                    out.println(line);
+                }
+            }
+            finally {
+                out.close();
+            }
+            return file.getExperimentCount();
+        }
+        finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Prepares a graph file out of a text batch holding a single experiment. Parent links are streamed into the
+     * graph file, so the experiment does not have to fit on the heap.
+     * @param source Text batch file.
+     * @param target Graph file.
+     * @return Number of experiments converted, always 1.
+     * @throws IOException
+     * @throws WrongInputException If text batch is malformed or holds more than one experiment.
+     */
+    public static int toGraph(Path source, Path target) throws IOException, WrongInputException{
+        FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+        try {
+            IntTokenizer tokenizer = new IntTokenizer(channel);
+            int count = tokenizer.nextInt();
+            if(count!=1){
+                throw new WrongInputException(String.format("Graph file holds a single experiment, batch has %s.", count));
+            }
+            GraphFile.create(target, tokenizer, tokenizer.nextInt()).close();
+            if(tokenizer.hasNext()){
+                throw new WrongInputException("Number of relations should be equal to number of cities - 1");
+            }
+            return count;
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    public static void main(String[] args){
+        if(args.length!=3 || (!args[0].equals("--to-binary") && !args[0].equals("--to-text") &&
+                !args[0].equals("--to-graph"))){
+            System.err.println("Usage: BatchConverter --to-binary|--to-text|--to-graph SOURCE TARGET");
+            System.exit(1);
+        }
+        try {
+            Path source = Paths.get(args[1]);
+            Path target = Paths.get(args[2]);
+            int count = args[0].equals("--to-binary") ? toBinary(source, target) :
+                    args[0].equals("--to-text") ? toText(source, target) : toGraph(source, target);
+            System.err.println(String.format("%s experiments converted.", count));
+        }
+        catch (IOException e){
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        catch (WrongInputException e){
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
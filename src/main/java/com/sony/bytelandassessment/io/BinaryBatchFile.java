@@ -0,0 +1,163 @@
+package com.sony.bytelandassessment.io;
+
+import com.sony.bytelandassessment.exceptions.WrongInputException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Experiment batch file in binary format, read through memory mapping. All values are little-endian:
+ *
+ *      magic       int32       0x55544942 ("BITU" in file order)
+ *      version     int32       1
+ *      count       int32       Number of experiments.
+ *      offsets     int64[count+1]  Offset of every experiment record from file start, the last one is file size.
+ *      records     Per experiment: number of cities as int32, then (number of cities - 1) parent links as int32.
+ *
+ * Parent links are copied into caller arrays in bulk, no text is parsed. Records are mapped in windows of up to 1GB,
+ * so batches larger than a single mapping can be read. An instance is not thread safe.
+ */
+public class BinaryBatchFile implements Closeable {
+    /**
+     * First int32 of every binary batch file.
+     */
+    public static final int MAGIC = 0x55544942;
+    /**
+     * Format version written by BinaryBatchWriter.
+     */
+    public static final int VERSION = 1;
+
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final int experimentCount;
+    private final long[] offsets;
+    private MappedByteBuffer window;
+    private long windowStart = 0;
+    private long windowEnd = 0;
+
+    private BinaryBatchFile(FileChannel channel) throws IOException, WrongInputException{
+        this.channel = channel;
+        long size = channel.size();
+        ByteBuffer header = readFully(0, 12);
+        if(size<12 || header.getInt(0)!=MAGIC){
+            throw new WrongInputException("Input is not a binary batch file.");
+        }
+        if(header.getInt(4)!=VERSION){
+            throw new WrongInputException(String.format("Binary batch version %s is not supported.", header.getInt(4)));
+        }
+        this.experimentCount = header.getInt(8);
+        if(experimentCount<0 || 12 + 8L*(experimentCount + 1)>size){
+            throw new WrongInputException("Binary batch header is corrupt.");
+        }
+        this.offsets = new long[experimentCount + 1];
+        ByteBuffer table = readFully(12, 8*(experimentCount + 1));
+        table.asLongBuffer().get(offsets);
+        long previous = 12 + 8L*(experimentCount + 1);
+        for(long offset: offsets){
+            if(offset<previous || offset>size){
+                throw new WrongInputException("Binary batch header is corrupt.");
+            }
+            previous = offset;
+        }
+    }
+
+    /**
+     * Opens given file.
+     * @param path File path.
+     * @return Binary batch file.
+     * @throws IOException
+     * @throws WrongInputException If file is not a binary batch file or its header is corrupt.
+     */
+    public static BinaryBatchFile open(Path path) throws IOException, WrongInputException{
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new BinaryBatchFile(channel);
+        }
+        catch (IOException e){
+            channel.close();
+            throw e;
+        }
+        catch (WrongInputException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException{
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, position + buffer.position())<0){
+                break;
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Gets number of experiments.
+     * @return Experiment count.
+     */
+    public int getExperimentCount(){
+        return experimentCount;
+    }
+
+    private IntBuffer record(int experiment) throws IOException, WrongInputException{
+        long start = offsets[experiment];
+        long end = offsets[experiment + 1];
+        if(end - start<4 || (end - start)%4!=0 || end - start>Integer.MAX_VALUE){
+            throw new WrongInputException(String.format("Experiment %s is corrupt.", experiment));
+        }
+        if(window==null || start<windowStart || end>windowEnd){
+            windowStart = start;
+            windowEnd = Math.max(end, Math.min(offsets[experimentCount], start + WINDOW_SIZE));
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ByteBuffer slice = window.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        slice.limit((int)(end - windowStart)).position((int)(start - windowStart));
+        return slice.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * Gets number of cities of given experiment.
+     * @param experiment Experiment index, [0, getExperimentCount()).
+     * @return Number of cities.
+     * @throws IOException
+     * @throws WrongInputException If experiment record is corrupt.
+     */
+    public int getNumOfCities(int experiment) throws IOException, WrongInputException{
+        return record(experiment).get(0);
+    }
+
+    /**
+     * Copies parent links of given experiment into target array.
+     * Values which do not fit into target are counted but not copied.
+     * @param experiment Experiment index, [0, getExperimentCount()).
+     * @param target Target array.
+     * @return Number of parent links of the experiment.
+     * @throws IOException
+     * @throws WrongInputException If experiment record is corrupt.
+     */
+    public int readParents(int experiment, int[] target) throws IOException, WrongInputException{
+        IntBuffer record = record(experiment);
+        int count = record.remaining() - 1;
+        record.position(1);
+        record.get(target, 0, Math.min(count, target.length));
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException{
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,124 @@
+package com.sony.bytelandassessment.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes experiments in the binary batch format read by BinaryBatchFile.
+ * Offsets table is reserved at the start and filled in when the writer is closed, so number of experiments should be
+ * known up front and the target should be a seekable file.
+ */
+public class BinaryBatchWriter implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final int experimentCount;
+    private final long[] offsets;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private int written = 0;
+    private long position;
+
+    /**
+     * Creates writer, given file is created or truncated.
+     * @param path File path.
+     * @param experimentCount Number of experiments which will be written.
+     * @throws IOException
+     */
+    public BinaryBatchWriter(Path path, int experimentCount) throws IOException{
+        if(experimentCount<0){
+            throw new IllegalArgumentException("Experiment count cannot be negative.");
+        }
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.experimentCount = experimentCount;
+        this.offsets = new long[experimentCount + 1];
+        this.position = 12 + 8L*(experimentCount + 1);
+        channel.position(position);
+    }
+
+    /**
+     * Writes next experiment.
+     * @param numOfCities Number of cities, at least 1.
+     * @param parents Parent links, first (numOfCities-1) values are written.
+     * @throws IOException
+     */
+    public void write(int numOfCities, int[] parents) throws IOException{
+        if(written==experimentCount){
+            throw new IllegalStateException(String.format("Only %s experiments were declared.", experimentCount));
+        }
+        if(numOfCities<1 || parents.length<numOfCities - 1){
+            throw new IllegalArgumentException(String.format("Parent links of %s cities expected.", numOfCities));
+        }
+        offsets[written++] = position;
+        putInt(numOfCities);
+        for(int i=0; i<numOfCities - 1; i++){
+            putInt(parents[i]);
+        }
+        position += 4L*numOfCities;
+    }
+
+    private void putInt(int value) throws IOException{
+        if(buffer.remaining()<4){
+            flush();
+        }
+        buffer.putInt(value);
+    }
+
+    private void flush() throws IOException{
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes header with offsets table and closes the file.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException{
+        try {
+            if(written!=experimentCount){
+                throw new IllegalStateException(String.format("%s experiments were declared, %s written.",
+                        experimentCount, written));
+            }
+            flush();
+            offsets[experimentCount] = position;
+            channel.position(0);
+            putInt(BinaryBatchFile.MAGIC);
+            putInt(BinaryBatchFile.VERSION);
+            putInt(experimentCount);
+            for(long offset: offsets){
+                if(buffer.remaining()<8){
+                    flush();
+                }
+                buffer.putLong(offset);
+            }
+            flush();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Closes the file without writing the header and deletes it, when experiments cannot all be written. Failures
+     * are ignored, so the exception which made the file incomplete is the one reported.
+     */
+    public void abort(){
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e){
+            //File is incomplete either way.
+        }
+    }
+}
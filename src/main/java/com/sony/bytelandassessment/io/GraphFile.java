@@ -0,0 +1,315 @@
+package com.sony.bytelandassessment.io;
+
+import com.sony.bytelandassessment.exceptions.WrongInputException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Graph of a single experiment prepared for solving, read through memory mapping. Arrays are kept in the file, so a
+ * graph of tens of millions of cities can be solved with a small heap, and a prepared graph can be solved again by
+ * later runs without parsing. All values are little-endian int32:
+ *
+ *      magic           0x50524742 ("BGRP" in file order)
+ *      version         1
+ *      numOfCities     Number of cities.
+ *      reached         Number of cities reached from city 0, graph is unifiable if all of them are.
+ *      parents         [numOfCities-1] Parent links as given: city (i+1) is connected to city parents[i].
+ *      offsets         [numOfCities+1] Neighbours of city i are targets[offsets[i]] ... targets[offsets[i+1]-1].
+ *      targets         [2*(numOfCities-1)]
+ *      rootedParents   [numOfCities] Parent of every city when graph is rooted at city 0, -1 for city 0.
+ *      postOrder       [numOfCities] Cities reached from city 0, every subtree right before its root.
+ *
+ * Arrays are built inside the mapped file while it is prepared, so preparing does not need heap either. Every section
+ * is mapped on its own, so the number of cities is bounded by the 2GB limit of a single mapping of targets.
+ */
+public class GraphFile implements Closeable {
+    /**
+     * First int32 of every graph file.
+     */
+    public static final int MAGIC = 0x50524742;
+    /**
+     * Format version written by create.
+     */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_CITIES = (Integer.MAX_VALUE - 8) / 8;
+
+    private final FileChannel channel;
+    private final int numOfCities;
+    private final int reached;
+    private final IntBuffer parents;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer rootedParents;
+    private final IntBuffer postOrder;
+
+    private GraphFile(FileChannel channel, FileChannel.MapMode mode, int numOfCities) throws IOException{
+        this.channel = channel;
+        this.numOfCities = numOfCities;
+        long position = HEADER_SIZE;
+        this.parents = map(mode, position, numOfCities - 1);
+        position += 4L*(numOfCities - 1);
+        this.offsets = map(mode, position, numOfCities + 1);
+        position += 4L*(numOfCities + 1);
+        this.targets = map(mode, position, 2*(numOfCities - 1));
+        position += 8L*(numOfCities - 1);
+        this.rootedParents = map(mode, position, numOfCities);
+        position += 4L*numOfCities;
+        this.postOrder = map(mode, position, numOfCities);
+        this.reached = readHeader(channel).getInt(12);
+    }
+
+    private static long fileSize(int numOfCities){
+        return HEADER_SIZE + 4L*(numOfCities - 1) + 4L*(numOfCities + 1) + 8L*(numOfCities - 1) + 8L*numOfCities;
+    }
+
+    private IntBuffer map(FileChannel.MapMode mode, long position, int length) throws IOException{
+        return channel.map(mode, position, 4L*length).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException{
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while(header.hasRemaining()){
+            if(channel.read(header, header.position())<0){
+                break;
+            }
+        }
+        header.clear();
+        return header;
+    }
+
+    /**
+     * Prepares a graph file from parent links held in an array.
+     * @param path File path, file is created or truncated.
+     * @param parents Parent links, first (numOfCities-1) values are used.
+     * @param numOfCities Number of cities.
+     * @return Graph file, open for reading.
+     * @throws IOException
+     * @throws WrongInputException If a parent link is out of range.
+     */
+    public static GraphFile create(Path path, final int[] parents, int numOfCities)
+            throws IOException, WrongInputException{
+        if(parents.length<numOfCities - 1){
+            throw new WrongInputException(String.format("Number of relations should be equal to %s", numOfCities - 1));
+        }
+        return create(path, numOfCities, new ParentSource() {
+            @Override
+            public void copyTo(IntBuffer target){
+                target.put(parents, 0, target.remaining());
+            }
+        });
+    }
+
+    /**
+     * Prepares a graph file from parent links read one by one, so they never have to be held on the heap.
+     * @param path File path, file is created or truncated.
+     * @param tokenizer Tokenizer positioned before the parent links.
+     * @param numOfCities Number of cities.
+     * @return Graph file, open for reading.
+     * @throws IOException
+     * @throws WrongInputException If a parent link is missing, malformed or out of range.
+     */
+    public static GraphFile create(Path path, final IntTokenizer tokenizer, int numOfCities)
+            throws IOException, WrongInputException{
+        return create(path, numOfCities, new ParentSource() {
+            @Override
+            public void copyTo(IntBuffer target) throws IOException, WrongInputException{
+                while(target.hasRemaining()){
+                    target.put(tokenizer.nextInt());
+                }
+            }
+        });
+    }
+
+    private interface ParentSource {
+        void copyTo(IntBuffer target) throws IOException, WrongInputException;
+    }
+
+    private static GraphFile create(Path path, int numOfCities, ParentSource source)
+            throws IOException, WrongInputException{
+        if(numOfCities<1 || numOfCities>MAX_CITIES){
+            throw new WrongInputException(String.format("Number of cities should be in range [1, %s]", MAX_CITIES));
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            channel.truncate(0);
+            channel.write(ByteBuffer.allocate(1), fileSize(numOfCities) - 1);
+            GraphFile file = new GraphFile(channel, FileChannel.MapMode.READ_WRITE, numOfCities);
+            source.copyTo(file.parents.duplicate());
+            int reached = file.build();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(numOfCities).putInt(reached).flip();
+            while(header.hasRemaining()){
+                channel.write(header, header.position());
+            }
+        }
+        finally {
+            channel.close();
+        }
+        return open(path);
+    }
+
+    /**
+     * Builds neighbourhood, rooted parents and post order out of parent links.
+     * @return Number of cities reached from city 0.
+     */
+    private int build() throws WrongInputException{
+        for(int i=0; i<numOfCities - 1; i++){
+            int parent = parents.get(i);
+            if(parent<0 || parent>=numOfCities){
+                throw new WrongInputException(String.format("Cities should be numbered in range [0, %s)", numOfCities));
+            }
+            offsets.put(parent + 1, offsets.get(parent + 1) + 1);
+            offsets.put(i + 2, offsets.get(i + 2) + 1);
+        }
+        for(int i=0; i<numOfCities; i++){
+            offsets.put(i + 1, offsets.get(i + 1) + offsets.get(i));
+        }
+        //Post order section keeps fill cursors until traversal needs it.
+        for(int i=0; i<numOfCities; i++){
+            postOrder.put(i, offsets.get(i));
+        }
+        for(int i=0; i<numOfCities - 1; i++){
+            int parent = parents.get(i);
+            targets.put(postOrder.get(i + 1), parent);
+            postOrder.put(i + 1, postOrder.get(i + 1) + 1);
+            targets.put(postOrder.get(parent), i + 1);
+            postOrder.put(parent, postOrder.get(parent) + 1);
+        }
+        for(int i=0; i<numOfCities; i++){
+            rootedParents.put(i, -2);
+        }
+        /*
+        Depth first traversal with an explicit stack. Cities are popped in pre order (children taken in reverse), and
+        written backwards from the end, which gives post order. Stack grows from the start of the same section; it
+        never holds more cities than are left to be written, so the two never meet.
+         */
+        rootedParents.put(0, -1);
+        postOrder.put(0, 0);
+        int stackSize = 1;
+        int write = numOfCities;
+        while(stackSize>0){
+            int city = postOrder.get(--stackSize);
+            postOrder.put(--write, city);
+            for(int k=offsets.get(city); k<offsets.get(city + 1); k++){
+                int neighbour = targets.get(k);
+                if(rootedParents.get(neighbour)==-2){
+                    rootedParents.put(neighbour, city);
+                    postOrder.put(stackSize++, neighbour);
+                }
+            }
+        }
+        int reachedCount = numOfCities - write;
+        if(write>0){
+            //Reached cities are moved to the start.
+            for(int i=0; i<reachedCount; i++){
+                postOrder.put(i, postOrder.get(write + i));
+            }
+        }
+        return reachedCount;
+    }
+
+    /**
+     * Opens a prepared graph file for reading.
+     * @param path File path.
+     * @return Graph file.
+     * @throws IOException
+     * @throws WrongInputException If file is not a graph file or it is truncated.
+     */
+    public static GraphFile open(Path path) throws IOException, WrongInputException{
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readHeader(channel);
+            if(channel.size()<HEADER_SIZE || header.getInt(0)!=MAGIC){
+                throw new WrongInputException("Input is not a graph file.");
+            }
+            if(header.getInt(4)!=VERSION){
+                throw new WrongInputException(String.format("Graph file version %s is not supported.", header.getInt(4)));
+            }
+            int numOfCities = header.getInt(8);
+            if(numOfCities<1 || numOfCities>MAX_CITIES || channel.size()!=fileSize(numOfCities) ||
+                    header.getInt(12)<1 || header.getInt(12)>numOfCities){
+                throw new WrongInputException("Graph file is corrupt.");
+            }
+            return new GraphFile(channel, FileChannel.MapMode.READ_ONLY, numOfCities);
+        }
+        catch (IOException e){
+            channel.close();
+            throw e;
+        }
+        catch (WrongInputException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets number of cities.
+     * @return Number of cities.
+     */
+    public int getNumOfCities(){
+        return numOfCities;
+    }
+
+    /**
+     * Gets whether every city is reached from city 0, which graph needs to be unifiable.
+     * @return True if graph is connected.
+     */
+    public boolean isConnected(){
+        return reached == numOfCities;
+    }
+
+    /**
+     * Gets parent links: city (i+1) is connected to city get(i).
+     * @return Buffer of (numOfCities-1) values, positioned independently of other callers.
+     */
+    public IntBuffer getParents(){
+        return parents.duplicate();
+    }
+
+    /**
+     * Gets neighbour offsets: neighbours of city i are getTargets() values [get(i), get(i+1)).
+     * @return Buffer of (numOfCities+1) values.
+     */
+    public IntBuffer getOffsets(){
+        return offsets.duplicate();
+    }
+
+    /**
+     * Gets neighbours of every city, grouped by offsets.
+     * @return Buffer of 2*(numOfCities-1) values.
+     */
+    public IntBuffer getTargets(){
+        return targets.duplicate();
+    }
+
+    /**
+     * Gets parent of every city when graph is rooted at city 0.
+     * @return Buffer of numOfCities values, -1 for city 0 and -2 for cities not reached.
+     */
+    public IntBuffer getRootedParents(){
+        return rootedParents.duplicate();
+    }
+
+    /**
+     * Gets cities reached from city 0 in post order, every subtree comes right before its root.
+     * @return Buffer of numOfCities values, only the first ones are meaningful if graph is not connected.
+     */
+    public IntBuffer getPostOrder(){
+        return postOrder.duplicate();
+    }
+
+    @Override
+    public void close() throws IOException{
+        channel.close();
+    }
+}
@@ -0,0 +1,213 @@
+package com.sony.bytelandassessment.io;
+
+import com.sony.bytelandassessment.exceptions.WrongInputException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads space separated integers straight from bytes of a channel or a buffer (e.g. a memory-mapped file region),
+ * without creating strings or boxed values.
+ * Input is expected in ASCII, values are separated by spaces or tabs and lines are separated by '\n' (optionally "\r\n").
+ */
+public class IntTokenizer {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;//Null when tokenizer reads a buffer.
+    private final ByteBuffer buffer;
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfInput = false;
+
+    /**
+     * Creates tokenizer over given channel.
+     * @param channel Channel, stdin can be given as Channels.newChannel(System.in).
+     */
+    public IntTokenizer(ReadableByteChannel channel){
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates tokenizer over given stream.
+     * @param inputStream Input stream.
+     */
+    public IntTokenizer(InputStream inputStream){
+        this(Channels.newChannel(inputStream), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates tokenizer over given channel with given buffer size.
+     * @param channel Channel.
+     * @param bufferSize Buffer size in bytes.
+     */
+    public IntTokenizer(ReadableByteChannel channel, int bufferSize){
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Creates tokenizer over remaining bytes of given buffer, bytes are read in place.
+     * @param buffer Buffer, its position is not changed.
+     */
+    public IntTokenizer(ByteBuffer buffer){
+        this.channel = null;
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+        this.endOfInput = true;
+    }
+
+    private boolean fill() throws IOException{
+        if(endOfInput){
+            return false;
+        }
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while(read==0);
+        if(read<0){
+            endOfInput = true;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    /**
+     * Peeks next byte without consuming it.
+     * @return Next byte, -1 at the end of input.
+     */
+    private int peek() throws IOException{
+        if(position==limit && !fill()){
+            return -1;
+        }
+        return buffer.get(position) & 0xFF;
+    }
+
+    private static boolean isSpace(int value){
+        return value==' ' || value=='\t' || value=='\r';
+    }
+
+    /**
+     * Checks if there is any value left, skipping whitespace and line breaks.
+     * @return True if another value follows.
+     * @throws IOException
+     */
+    public boolean hasNext() throws IOException{
+        int value;
+        while((value = peek())!=-1 && (isSpace(value) || value=='\n')){
+            position++;
+        }
+        return value!=-1;
+    }
+
+    /**
+     * Reads next integer, skipping whitespace and line breaks before it.
+     * @return Integer value.
+     * @throws IOException
+     * @throws WrongInputException If next token is not an integer, rest of its line is skipped.
+     */
+    public int nextInt() throws IOException, WrongInputException{
+        if(!hasNext()){
+            throw new EOFException("Unexpected end of input.");
+        }
+        return readInt();
+    }
+
+    /**
+     * Reads integers of the next non-empty line into target array.
+     * Values which do not fit into target are counted but not stored.
+     * @param target Target array.
+     * @return Number of values found on the line.
+     * @throws IOException
+     * @throws WrongInputException If a token is not an integer, rest of the line is skipped.
+     */
+    public int readLine(int[] target) throws IOException, WrongInputException{
+        if(!hasNext()){
+            throw new EOFException("Unexpected end of input.");
+        }
+        int count = 0;
+        while(true){
+            int value;
+            while((value = peek())!=-1 && isSpace(value)){
+                position++;
+            }
+            if(value==-1){
+                return count;
+            }
+            if(value=='\n'){
+                position++;
+                return count;
+            }
+            int parsed = readInt();
+            if(count<target.length){
+                target[count] = parsed;
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Skips the rest of the current line.
+     * @throws IOException
+     */
+    public void skipLine() throws IOException{
+        int value;
+        while((value = peek())!=-1){
+            position++;
+            if(value=='\n'){
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skips the next non-empty line.
+     * @throws IOException
+     */
+    public void skipNextLine() throws IOException{
+        if(hasNext()){
+            skipLine();
+        }
+    }
+
+    private int readInt() throws IOException, WrongInputException{
+        boolean negative = false;
+        int value = peek();
+        if(value=='-' || value=='+'){
+            negative = value=='-';
+            position++;
+            value = peek();
+        }
+        if(value<'0' || value>'9'){
+            skipLine();
+            throw new WrongInputException("Value string should consists of integer values which spaced eachother.");
+        }
+        long result = 0;
+        while(value>='0' && value<='9'){
+            result = result*10 + (value-'0');
+            if(result>Integer.MAX_VALUE + 1L){
+                skipLine();
+                throw new WrongInputException("Value string should consists of integer values which spaced eachother.");
+            }
+            position++;
+            value = peek();
+        }
+        if(value!=-1 && value!='\n' && !isSpace(value)){
+            skipLine();
+            throw new WrongInputException("Value string should consists of integer values which spaced eachother.");
+        }
+        result = negative ? -result : result;
+        if(result>Integer.MAX_VALUE){
+            skipLine();
+            throw new WrongInputException("Value string should consists of integer values which spaced eachother.");
+        }
+        return (int)result;
+    }
+}
@@ -0,0 +1,214 @@
+package com.sony.bytelandassessment.io;
+
+import com.sony.bytelandassessment.exceptions.WrongInputException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Experiment batch file in text format (experiment count line, then number of cities line and parent links line of
+ * every experiment), read through memory mapping.
+ *
+ * Opening the file scans it once to index where every experiment starts. The file can then be split on experiment
+ * boundaries into parts, each of them is mapped on its own and parsed in place, so several workers can consume
+ * a batch which is larger than a single mapping (2GB) in parallel.
+ */
+public class MappedExperimentFile implements Closeable {
+    private static final long SCAN_WINDOW = 1L << 30;
+    private static final long MAX_SPLIT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private int experimentCount;
+    private long[] experimentOffsets = new long[16];//Offset of the number of cities line of every experiment.
+    private int indexedExperimentCount = 0;
+
+    private MappedExperimentFile(FileChannel channel) throws IOException{
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    /**
+     * Opens and indexes given file.
+     * @param path File path.
+     * @return Mapped file.
+     * @throws IOException
+     * @throws WrongInputException If experiment count is missing or is not an integer.
+     */
+    public static MappedExperimentFile open(Path path) throws IOException, WrongInputException{
+        MappedExperimentFile file = new MappedExperimentFile(FileChannel.open(path, StandardOpenOption.READ));
+        try {
+            file.index();
+        }
+        catch (IOException e){
+            file.close();
+            throw e;
+        }
+        catch (WrongInputException e){
+            file.close();
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Scans non-empty lines: the first one holds experiment count, then every experiment takes two lines.
+     */
+    private void index() throws IOException, WrongInputException{
+        long headerOffset = -1;
+        long lineNumber = 0;//Number of non-empty lines seen so far.
+        long lineStart = 0;
+        boolean lineHasContent = false;
+        for(long windowStart=0; windowStart<size; windowStart+=SCAN_WINDOW){
+            long windowSize = Math.min(SCAN_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            for(int i=0; i<windowSize; i++){
+                byte value = window.get(i);
+                if(value=='\n'){
+                    if(lineHasContent){
+                        if(lineNumber==0){
+                            headerOffset = lineStart;
+                        }
+                        else if(lineNumber%2==1){
+                            addExperimentOffset(lineStart);
+                        }
+                        lineNumber++;
+                    }
+                    lineStart = windowStart + i + 1;
+                    lineHasContent = false;
+                }
+                else if(value!=' ' && value!='\t' && value!='\r'){
+                    lineHasContent = true;
+                }
+            }
+        }
+        if(lineHasContent){
+            if(lineNumber==0){
+                headerOffset = lineStart;
+            }
+            else if(lineNumber%2==1){
+                addExperimentOffset(lineStart);
+            }
+        }
+        if(headerOffset<0){
+            throw new WrongInputException("You should feed integer for this input.");
+        }
+        IntTokenizer header = new IntTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, headerOffset,
+                Math.min(64, size - headerOffset)));
+        this.experimentCount = header.nextInt();
+    }
+
+    private void addExperimentOffset(long offset){
+        if(indexedExperimentCount==experimentOffsets.length){
+            experimentOffsets = Arrays.copyOf(experimentOffsets, indexedExperimentCount*2);
+        }
+        experimentOffsets[indexedExperimentCount++] = offset;
+    }
+
+    /**
+     * Gets experiment count declared on the first line.
+     * @return Experiment count.
+     */
+    public int getExperimentCount(){
+        return this.experimentCount;
+    }
+
+    /**
+     * Gets number of experiments actually found in the file.
+     * @return Experiment count.
+     */
+    public int getIndexedExperimentCount(){
+        return this.indexedExperimentCount;
+    }
+
+    /**
+     * Splits count experiments from given one on into at most given number of parts, balanced by their size in bytes.
+     * A part never exceeds 1GB unless a single experiment does.
+     * @param firstExperiment Index of the first experiment to split.
+     * @param count Number of experiments to split, at most getIndexedExperimentCount() - firstExperiment.
+     * @param parts Number of parts wanted.
+     * @return Parts in file order.
+     * @throws IOException If a single experiment cannot be mapped.
+     */
+    public List<Split> split(int firstExperiment, int count, int parts) throws IOException{
+        List<Split> splits = new ArrayList<Split>();
+        if(count==0){
+            return splits;
+        }
+        int last = firstExperiment + count - 1;
+        long start = experimentOffsets[firstExperiment];
+        long end = endOf(last);
+        long target = Math.min(MAX_SPLIT_SIZE, Math.max(1, (end - start + parts - 1)/parts));
+        int first = firstExperiment;
+        for(int i=firstExperiment; i<=last; i++){
+            long partEnd = endOf(i);
+            if(partEnd - experimentOffsets[first] >= target || i==last){
+                if(partEnd - experimentOffsets[first] > Integer.MAX_VALUE){
+                    throw new IOException(String.format("Experiment %s is too large to be mapped.", i));
+                }
+                splits.add(new Split(first, i - first + 1, experimentOffsets[first], partEnd));
+                first = i + 1;
+            }
+        }
+        return splits;
+    }
+
+    private long endOf(int experiment){
+        return experiment + 1 < indexedExperimentCount ? experimentOffsets[experiment + 1] : size;
+    }
+
+    @Override
+    public void close() throws IOException{
+        channel.close();
+    }
+
+    /**
+     * Consecutive experiments of the file which can be parsed independently.
+     */
+    public class Split {
+        private final int firstExperiment;
+        private final int experimentCount;
+        private final long startOffset;
+        private final long endOffset;
+
+        private Split(int firstExperiment, int experimentCount, long startOffset, long endOffset){
+            this.firstExperiment = firstExperiment;
+            this.experimentCount = experimentCount;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+        }
+
+        /**
+         * Gets index of the first experiment of this part in the file.
+         * @return Experiment index.
+         */
+        public int getFirstExperiment(){
+            return firstExperiment;
+        }
+
+        /**
+         * Gets number of experiments in this part.
+         * @return Experiment count.
+         */
+        public int getExperimentCount(){
+            return experimentCount;
+        }
+
+        /**
+         * Maps this part and creates a tokenizer which reads it in place.
+         * Every experiment is read as number of cities by nextInt() and parent links by readLine(int[]).
+         * @return Tokenizer over this part.
+         * @throws IOException
+         */
+        public IntTokenizer openTokenizer() throws IOException{
+            return new IntTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, startOffset, endOffset - startOffset));
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.sony.bytelandassessment.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output stage of a batch. Results and errors are queued by the threads producing them, in experiment order, and a
+ * writer thread encodes them into large buffers written to output and error channels. Producers never wait for I/O;
+ * the queue is bounded though, and a producer waits while it is full, so reading input slows down to the pace output
+ * is written at instead of piling up results.
+ *
+ * Errors stay in-band: every record is written in the order it is queued, and a buffer is written out before the
+ * other stream gets a record, so results and errors interleave as before when both streams go to the same terminal.
+ * Error lines carry the index of their experiment:
+ *      Experiment 12: Number of relations should be equal to 5
+ */
+public class ResultWriter implements Closeable {
+    /**
+     * Default number of records which can wait for the writer thread.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private static final int BUFFER_SIZE = 1 << 18;
+    private static final int SMALL_BATCH = 64;
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /**
+     * When buffered records are written out, besides when a buffer is full.
+     */
+    public enum FlushPolicy {
+        /**
+         * After every record, for interactive use.
+         */
+        RECORD,
+        /**
+         * Whenever no record is waiting, so output is written in large chunks while results arrive faster than
+         * they are written, and within a millisecond otherwise.
+         */
+        IDLE,
+        /**
+         * Only when the writer is closed.
+         */
+        END
+    }
+
+    private static final Record END_OF_OUTPUT = new Record(-1, 0, null);
+
+    private final WritableByteChannel out;
+    private final WritableByteChannel err;
+    private final FlushPolicy flushPolicy;
+    private final BlockingQueue<Record> queue;
+    private final ByteBuffer outBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer errBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder errorLine = new StringBuilder();
+    private final Thread thread;
+    private volatile IOException failure;
+    private boolean closed = false;
+
+    /**
+     * Creates writer and starts its thread.
+     * @param out Channel results are written to.
+     * @param err Channel errors are written to.
+     * @param capacity Number of records which can wait for the writer thread.
+     * @param flushPolicy Flush policy.
+     */
+    public ResultWriter(WritableByteChannel out, WritableByteChannel err, int capacity, FlushPolicy flushPolicy){
+        if(capacity<1){
+            throw new IllegalArgumentException("Capacity should be positive.");
+        }
+        if(flushPolicy==null){
+            throw new NullPointerException("flushPolicy cannot be null!");
+        }
+        this.out = out;
+        this.err = err;
+        this.flushPolicy = flushPolicy;
+        this.queue = new ArrayBlockingQueue<Record>(capacity);
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writeRecords();
+                }
+                catch (IOException e){
+                    failure = e;
+                    queue.clear();
+                }
+                catch (InterruptedException e){
+                    //Producers waiting for room in the queue are told, rather than waiting forever.
+                    failure = new IOException("Result writer was interrupted.", e);
+                    queue.clear();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "byteland-result-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues step number of an experiment.
+     * @param index Experiment index.
+     * @param stepNumber Step number.
+     * @throws InterruptedException
+     * @throws IOException If the writer thread failed to write earlier records.
+     */
+    public void writeResult(int index, int stepNumber) throws InterruptedException, IOException{
+        put(new Record(index, stepNumber, null));
+    }
+
+    /**
+     * Queues error of an experiment.
+     * @param index Experiment index.
+     * @param message Error message.
+     * @throws InterruptedException
+     * @throws IOException If the writer thread failed to write earlier records.
+     */
+    public void writeError(int index, String message) throws InterruptedException, IOException{
+        put(new Record(index, 0, String.valueOf(message)));
+    }
+
+    private void put(Record record) throws InterruptedException, IOException{
+        if(closed){
+            throw new IllegalStateException("Result writer is closed.");
+        }
+        while(failure==null && !queue.offer(record, 100, TimeUnit.MILLISECONDS)){
+            //Waiting for the writer thread, which may have failed meanwhile.
+        }
+        if(failure!=null){
+            throw failure;
+        }
+    }
+
+    private void writeRecords() throws IOException, InterruptedException{
+        List<Record> batch = new ArrayList<Record>();
+        while(true){
+            batch.clear();
+            batch.add(queue.take());
+            queue.drainTo(batch);
+            for(Record record: batch){
+                if(record==END_OF_OUTPUT){
+                    flush(outBuffer, out);
+                    flush(errBuffer, err);
+                    return;
+                }
+                if(record.message==null){
+                    flush(errBuffer, err);
+                    appendResult(record.stepNumber);
+                }
+                else {
+                    flush(outBuffer, out);
+                    appendError(record.index, record.message);
+                }
+                if(flushPolicy==FlushPolicy.RECORD){
+                    flush(outBuffer, out);
+                    flush(errBuffer, err);
+                }
+            }
+            if(flushPolicy==FlushPolicy.IDLE && queue.isEmpty()){
+                flush(outBuffer, out);
+                flush(errBuffer, err);
+            }
+            if(flushPolicy!=FlushPolicy.RECORD && batch.size()<SMALL_BATCH){
+                //Records trickle in one by one; waking up for each of them costs more than writing it.
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private void appendResult(int stepNumber) throws IOException{
+        if(outBuffer.remaining()<12){
+            flush(outBuffer, out);
+        }
+        long value = stepNumber;
+        if(value<0){
+            outBuffer.put((byte)'-');
+            value = -value;
+        }
+        //Digits are put from the most significant one, without building a string.
+        long divisor = 1;
+        while(value/divisor>=10){
+            divisor *= 10;
+        }
+        while(divisor>0){
+            outBuffer.put((byte)('0' + value/divisor%10));
+            divisor /= 10;
+        }
+        outBuffer.put((byte)'\n');
+    }
+
+    private void appendError(int index, String message) throws IOException{
+        errorLine.setLength(0);
+        errorLine.append("Experiment ").append(index).append(": ").append(message).append(LINE_SEPARATOR);
+        byte[] line = errorLine.toString().getBytes(StandardCharsets.UTF_8);
+        if(errBuffer.remaining()<line.length){
+            flush(errBuffer, err);
+        }
+        if(line.length>errBuffer.capacity()){
+            write(ByteBuffer.wrap(line), err);
+            return;
+        }
+        errBuffer.put(line);
+    }
+
+    private static void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException{
+        if(buffer.position()>0){
+            buffer.flip();
+            write(buffer, channel);
+            buffer.clear();
+        }
+    }
+
+    private static void write(ByteBuffer buffer, WritableByteChannel channel) throws IOException{
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Writes every queued record, flushes and stops the writer thread. Channels are left open.
+     * @throws IOException If the writer thread failed to write.
+     */
+    @Override
+    public void close() throws IOException{
+        if(closed){
+            return;
+        }
+        try {
+            put(END_OF_OUTPUT);
+            closed = true;
+            thread.join();
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing results.", e);
+        }
+        if(failure!=null){
+            throw failure;
+        }
+    }
+
+    private static class Record {
+        private final int index;
+        private final int stepNumber;
+        private final String message;//Error message, null for results.
+
+        private Record(int index, int stepNumber, String message){
+            this.index = index;
+            this.stepNumber = stepNumber;
+            this.message = message;
+        }
+    }
+}
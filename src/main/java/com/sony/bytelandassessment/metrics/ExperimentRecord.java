@@ -0,0 +1,232 @@
+package com.sony.bytelandassessment.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Measurements of a single experiment, handed to a MetricsReporter once the experiment is solved or failed.
+ * Allocations are counted on the solving thread from solveStarted() on, when the JVM supports it (-1 otherwise).
+ */
+public class ExperimentRecord implements SolverMetrics {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final MetricsReporter reporter;
+    private final int experiment;
+    private final int numOfCities;
+    private long parseNanos = 0;
+    private long buildNanos = 0;
+    private long solveNanos = 0;
+    private int nodeCount = 0;
+    private int relationCount = 0;
+    private int rounds = 0;
+    private int[] merges = new int[8];
+    private int[] relationsRemaining = new int[8];
+    private long selectionNanos = 0;
+    private long mergeNanos = 0;
+    private long allocationStart = -1;
+    private long allocatedBytes = -1;
+    private int stepNumber = -1;
+    private String error;
+
+    /**
+     * Creates record of an experiment.
+     * @param reporter Reporter the record is given to once experiment is finished.
+     * @param experiment Index of the experiment in its batch.
+     * @param numOfCities Number of cities.
+     */
+    public ExperimentRecord(MetricsReporter reporter, int experiment, int numOfCities){
+        this.reporter = reporter;
+        this.experiment = experiment;
+        this.numOfCities = numOfCities;
+    }
+
+    private static long allocatedBytes(){
+        if(THREADS instanceof com.sun.management.ThreadMXBean){
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    @Override
+    public void parsed(long nanos){
+        this.parseNanos = nanos;
+    }
+
+    @Override
+    public void solveStarted(){
+        this.allocationStart = allocatedBytes();
+    }
+
+    @Override
+    public void built(long nanos, int nodeCount, int relationCount){
+        this.buildNanos = nanos;
+        this.nodeCount = nodeCount;
+        this.relationCount = relationCount;
+    }
+
+    @Override
+    public void roundFinished(int nodesRemaining, int merges, int relationCount, long selectionNanos, long mergeNanos){
+        if(rounds==this.merges.length){
+            this.merges = Arrays.copyOf(this.merges, rounds*2);
+            this.relationsRemaining = Arrays.copyOf(this.relationsRemaining, rounds*2);
+        }
+        this.merges[rounds] = merges;
+        this.relationsRemaining[rounds] = relationCount;
+        this.selectionNanos += selectionNanos;
+        this.mergeNanos += mergeNanos;
+        rounds++;
+    }
+
+    @Override
+    public void solved(long nanos, int stepNumber){
+        this.solveNanos = nanos;
+        this.stepNumber = stepNumber;
+        finish();
+    }
+
+    @Override
+    public void failed(String message){
+        this.error = message;
+        finish();
+    }
+
+    private void finish(){
+        if(allocationStart>=0){
+            long end = allocatedBytes();
+            this.allocatedBytes = end>=0 ? end - allocationStart : -1;
+        }
+        reporter.report(this);
+    }
+
+    /**
+     * Gets index of the experiment in its batch.
+     * @return Experiment index.
+     */
+    public int getExperiment(){
+        return experiment;
+    }
+
+    /**
+     * Gets number of cities.
+     * @return Number of cities.
+     */
+    public int getNumOfCities(){
+        return numOfCities;
+    }
+
+    /**
+     * Gets time spent reading parent links.
+     * @return Nanoseconds.
+     */
+    public long getParseNanos(){
+        return parseNanos;
+    }
+
+    /**
+     * Gets time spent building solver structure.
+     * @return Nanoseconds.
+     */
+    public long getBuildNanos(){
+        return buildNanos;
+    }
+
+    /**
+     * Gets time spent unifying after solver structure was built.
+     * @return Nanoseconds.
+     */
+    public long getSolveNanos(){
+        return solveNanos;
+    }
+
+    /**
+     * Gets number of relations solver structure was built with.
+     * @return Number of relations.
+     */
+    public int getRelationCount(){
+        return relationCount;
+    }
+
+    /**
+     * Gets number of unification rounds, 0 for UNION_TREE solver.
+     * @return Number of rounds.
+     */
+    public int getRounds(){
+        return rounds;
+    }
+
+    /**
+     * Gets number of merges performed in given round.
+     * @param round Round number, [0, getRounds()).
+     * @return Number of merges.
+     */
+    public int getMerges(int round){
+        return merges[round];
+    }
+
+    /**
+     * Gets number of bytes allocated while solving, -1 if unknown.
+     * @return Number of bytes.
+     */
+    public long getAllocatedBytes(){
+        return allocatedBytes;
+    }
+
+    /**
+     * Gets minimum number of steps, -1 if experiment failed.
+     * @return Step number.
+     */
+    public int getStepNumber(){
+        return stepNumber;
+    }
+
+    /**
+     * Gets error message.
+     * @return Error message, null if experiment is solved.
+     */
+    public String getError(){
+        return error;
+    }
+
+    /**
+     * Formats the record as a single line JSON object.
+     * @return JSON string.
+     */
+    public String toJson(){
+        StringBuilder builder = new StringBuilder(256);
+        builder.append("{\"experiment\":").append(experiment)
+                .append(",\"cities\":").append(numOfCities)
+                .append(",\"parseNanos\":").append(parseNanos)
+                .append(",\"buildNanos\":").append(buildNanos)
+                .append(",\"solveNanos\":").append(solveNanos)
+                .append(",\"nodes\":").append(nodeCount)
+                .append(",\"relations\":").append(relationCount)
+                .append(",\"rounds\":").append(rounds)
+                .append(",\"selectionNanos\":").append(selectionNanos)
+                .append(",\"mergeNanos\":").append(mergeNanos)
+                .append(",\"mergesPerRound\":[");
+        for(int i=0; i<rounds; i++){
+            builder.append(i==0 ? "" : ",").append(merges[i]);
+        }
+        builder.append("],\"relationsPerRound\":[");
+        for(int i=0; i<rounds; i++){
+            builder.append(i==0 ? "" : ",").append(relationsRemaining[i]);
+        }
+        builder.append("],\"allocatedBytes\":").append(allocatedBytes);
+        if(error==null){
+            builder.append(",\"steps\":").append(stepNumber);
+        }
+        else {
+            builder.append(",\"error\":\"");
+            for(int i=0; i<error.length(); i++){
+                char value = error.charAt(i);
+                if(value=='"' || value=='\\'){
+                    builder.append('\\');
+                }
+                builder.append(value < ' ' ? ' ' : value);
+            }
+            builder.append('"');
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.sony.bytelandassessment.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Sums finished experiments up and exposes totals as MBean com.sony.bytelandassessment:type=SolverStatistics.
+ */
+public class JmxReporter implements MetricsReporter, SolverStatisticsMBean {
+    /**
+     * Name the statistics are registered with.
+     */
+    public static final String OBJECT_NAME = "com.sony.bytelandassessment:type=SolverStatistics";
+
+    private long experiments = 0;
+    private long failures = 0;
+    private long cities = 0;
+    private long parseNanos = 0;
+    private long buildNanos = 0;
+    private long solveNanos = 0;
+    private long rounds = 0;
+    private long merges = 0;
+    private long allocatedBytes = 0;
+    private long maxSolveNanos = 0;
+
+    /**
+     * Registers statistics to platform MBean server.
+     * @throws JMException If an MBean is already registered with the same name.
+     */
+    public void register() throws JMException{
+        ManagementFactory.getPlatformMBeanServer().registerMBean(
+                new StandardMBean(this, SolverStatisticsMBean.class), new ObjectName(OBJECT_NAME));
+    }
+
+    @Override
+    public synchronized void report(ExperimentRecord record){
+        experiments++;
+        if(record.getError()!=null){
+            failures++;
+        }
+        cities += record.getNumOfCities();
+        parseNanos += record.getParseNanos();
+        buildNanos += record.getBuildNanos();
+        solveNanos += record.getSolveNanos();
+        rounds += record.getRounds();
+        for(int round=0; round<record.getRounds(); round++){
+            merges += record.getMerges(round);
+        }
+        if(record.getAllocatedBytes()>0){
+            allocatedBytes += record.getAllocatedBytes();
+        }
+        maxSolveNanos = Math.max(maxSolveNanos, record.getSolveNanos());
+    }
+
+    @Override
+    public synchronized long getExperiments(){
+        return experiments;
+    }
+
+    @Override
+    public synchronized long getFailures(){
+        return failures;
+    }
+
+    @Override
+    public synchronized long getCities(){
+        return cities;
+    }
+
+    @Override
+    public synchronized long getParseNanos(){
+        return parseNanos;
+    }
+
+    @Override
+    public synchronized long getBuildNanos(){
+        return buildNanos;
+    }
+
+    @Override
+    public synchronized long getSolveNanos(){
+        return solveNanos;
+    }
+
+    @Override
+    public synchronized long getRounds(){
+        return rounds;
+    }
+
+    @Override
+    public synchronized long getMerges(){
+        return merges;
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes(){
+        return allocatedBytes;
+    }
+
+    @Override
+    public synchronized long getMaxSolveNanos(){
+        return maxSolveNanos;
+    }
+}
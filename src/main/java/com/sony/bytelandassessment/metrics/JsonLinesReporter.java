@@ -0,0 +1,26 @@
+package com.sony.bytelandassessment.metrics;
+
+import java.io.PrintStream;
+
+/**
+ * Prints every finished experiment as a JSON object on its own line.
+ */
+public class JsonLinesReporter implements MetricsReporter {
+    private final PrintStream out;
+
+    /**
+     * Creates reporter.
+     * @param out Stream lines are printed to.
+     */
+    public JsonLinesReporter(PrintStream out){
+        this.out = out;
+    }
+
+    @Override
+    public void report(ExperimentRecord record){
+        String line = record.toJson();
+        synchronized (out){
+            out.println(line);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.sony.bytelandassessment.metrics;
+
+/**
+ * Destination of measurements of finished experiments. Experiments may be reported from several threads at once.
+ */
+public interface MetricsReporter {
+    /**
+     * Reports a finished (solved or failed) experiment.
+     * @param record Measurements of the experiment.
+     */
+    void report(ExperimentRecord record);
+}
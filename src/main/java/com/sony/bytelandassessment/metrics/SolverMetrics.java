@@ -0,0 +1,55 @@
+package com.sony.bytelandassessment.metrics;
+
+/**
+ * Receives measurements of a single experiment while it is parsed and solved.
+ * Every method has an empty default, and solvers skip their own timing when NO_OP is set, so the hot path stays free
+ * unless metrics are asked for.
+ */
+public interface SolverMetrics {
+    /**
+     * Metrics which ignore every measurement, default of every solver.
+     */
+    SolverMetrics NO_OP = new SolverMetrics() {};
+
+    /**
+     * Called once parent links of the experiment are read.
+     * @param nanos Time spent reading them.
+     */
+    default void parsed(long nanos){}
+
+    /**
+     * Called right before the solver is built.
+     */
+    default void solveStarted(){}
+
+    /**
+     * Called once solver structure is built.
+     * @param nanos Time spent building it.
+     * @param nodeCount Number of nodes.
+     * @param relationCount Number of relations.
+     */
+    default void built(long nanos, int nodeCount, int relationCount){}
+
+    /**
+     * Called after every unification round of simulation engines.
+     * @param nodesRemaining Number of nodes left.
+     * @param merges Number of merges performed.
+     * @param relationCount Number of relations left.
+     * @param selectionNanos Time spent choosing pairs to merge.
+     * @param mergeNanos Time spent merging them.
+     */
+    default void roundFinished(int nodesRemaining, int merges, int relationCount, long selectionNanos, long mergeNanos){}
+
+    /**
+     * Called once the experiment is solved.
+     * @param nanos Time spent unifying, after the structure was built.
+     * @param stepNumber Minimum number of steps.
+     */
+    default void solved(long nanos, int stepNumber){}
+
+    /**
+     * Called if the experiment cannot be solved.
+     * @param message Error message.
+     */
+    default void failed(String message){}
+}
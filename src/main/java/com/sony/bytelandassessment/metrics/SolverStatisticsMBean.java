@@ -0,0 +1,17 @@
+package com.sony.bytelandassessment.metrics;
+
+/**
+ * Totals of finished experiments exposed through JMX.
+ */
+public interface SolverStatisticsMBean {
+    long getExperiments();
+    long getFailures();
+    long getCities();
+    long getParseNanos();
+    long getBuildNanos();
+    long getSolveNanos();
+    long getRounds();
+    long getMerges();
+    long getAllocatedBytes();
+    long getMaxSolveNanos();
+}
@@ -0,0 +1,379 @@
+package com.sony.bytelandassessment.server;
+
+import com.sony.bytelandassessment.BatchRunner;
+import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.SolverType;
+import com.sony.bytelandassessment.cache.ResultCache;
+import com.sony.bytelandassessment.datastructure.SolverContext;
+import com.sony.bytelandassessment.io.IntTokenizer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Resident solver which accepts experiments over TCP, so a warmed JVM serves many batches.
+ *
+ * Clients send experiments the way they are given in a batch, without the experiment count line: number of cities on
+ * a line, then parent links on the next line. Requests can be pipelined; every experiment is answered by a line in
+ * request order, holding either the step number or "ERROR " followed by the reason.
+ *
+ * A single selector thread does all socket I/O and parsing, experiments are solved by a pool of workers. Experiments
+ * of a connection are solved one after another, parsed into an array and solved in a SolverContext the connection
+ * reuses, while different connections are solved in parallel. Input of a connection grows up to the size of the
+ * largest experiment the city limit allows.
+ */
+public class SolverServer implements Closeable {
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final ExecutorService executor;
+    private final ConcurrentLinkedQueue<Connection> finished = new ConcurrentLinkedQueue<Connection>();
+    private final int cityLimit;
+    private final int maxRequestBytes;//Size of the largest valid request, input of a connection is not grown beyond.
+    private final SolverType solverType;
+    private final ResultCache resultCache;
+    private volatile boolean running = true;
+
+    /**
+     * Creates server and binds it to given address.
+     * @param address Address to listen on, e.g. new InetSocketAddress("127.0.0.1", port).
+     * @param workers Number of threads experiments are solved by.
+     * @param cityLimit Upper limit of number of cities per experiment.
+     * @param solverType Solver engine.
+     * @param resultCache Result cache shared by connections, null to solve every experiment.
+     * @throws IOException
+     */
+    public SolverServer(InetSocketAddress address, int workers, int cityLimit, SolverType solverType,
+                        ResultCache resultCache) throws IOException{
+        this.cityLimit = cityLimit;
+        //Every parent link takes at most as many digits as the city limit, plus a separator; header line is short.
+        long maxRequest = (long) cityLimit*(String.valueOf(cityLimit).length() + 1) + 64;
+        this.maxRequestBytes = (int) Math.max(INITIAL_BUFFER_SIZE, Math.min(maxRequest, Integer.MAX_VALUE - 8));
+        this.solverType = solverType;
+        this.resultCache = resultCache;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(address);
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private int count = 0;
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "byteland-server-worker-" + (count++));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Gets port the server listens on, useful when it is bound to port 0.
+     * @return Port number.
+     * @throws IOException
+     */
+    public int getPort() throws IOException{
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Serves connections until the server is closed.
+     * @throws IOException
+     */
+    public void run() throws IOException{
+        while(running){
+            selector.select();
+            Connection connection;
+            while((connection = finished.poll())!=null){
+                connection.solving = false;
+                if(connection.key.isValid()){
+                    try {
+                        process(connection);
+                    }
+                    catch (IOException e){
+                        drop(connection.key);
+                    }
+                    catch (RuntimeException e){
+                        drop(connection.key);
+                    }
+                }
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while(keys.hasNext()){
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if(key.isValid() && key.isAcceptable()){
+                        accept();
+                    }
+                    if(key.isValid() && key.isReadable()){
+                        read((Connection) key.attachment());
+                    }
+                    if(key.isValid() && key.isWritable()){
+                        write((Connection) key.attachment());
+                    }
+                }
+                catch (IOException e){
+                    drop(key);
+                }
+                catch (RuntimeException e){
+                    drop(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes a connection which failed, other connections are still served. A failed accept keeps the server listening.
+     */
+    private void drop(SelectionKey key) throws IOException{
+        if(key.channel()==serverChannel){
+            return;
+        }
+        key.cancel();
+        key.channel().close();
+    }
+
+    private void accept() throws IOException{
+        SocketChannel channel = serverChannel.accept();
+        if(channel==null){
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(key));
+    }
+
+    private void read(Connection connection) throws IOException{
+        SocketChannel channel = (SocketChannel) connection.key.channel();
+        if(!connection.input.hasRemaining()){
+            if(connection.solving){
+                //Buffer is full of pipelined requests, reading resumes once they are processed.
+                connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+                return;
+            }
+            connection.growInput(maxRequestBytes);//A single experiment is larger than the buffer.
+        }
+        if(channel.read(connection.input)<0){
+            connection.closing = true;
+        }
+        process(connection);
+    }
+
+    private void write(Connection connection) throws IOException{
+        SocketChannel channel = (SocketChannel) connection.key.channel();
+        synchronized (connection){
+            connection.output.flip();
+            channel.write(connection.output);
+            connection.output.compact();
+            if(connection.output.position()==0){
+                if(connection.closing && !connection.solving && connection.nextExperimentEnd()<0){
+                    connection.key.cancel();
+                    channel.close();
+                    return;
+                }
+                connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Starts solving next complete experiment of the connection unless one is being solved, and updates interest in
+     * socket events accordingly. A connection whose input is full of an incomplete experiment larger than any valid
+     * one is answered by an error and closed, rather than its input growing without bound.
+     */
+    private void process(Connection connection) throws IOException{
+        startNext(connection);
+        if(!connection.solving && !connection.closing && !connection.input.hasRemaining() &&
+                connection.input.capacity()>=maxRequestBytes){
+            connection.consume(connection.input.position());
+            connection.respondError(String.format("Request is larger than %s bytes.", maxRequestBytes));
+            connection.closing = true;
+        }
+        int interest = connection.closing ? 0 : SelectionKey.OP_READ;
+        synchronized (connection){
+            if(connection.output.position()>0 || (connection.closing && !connection.solving)){
+                interest |= SelectionKey.OP_WRITE;
+            }
+        }
+        connection.key.interestOps(interest);
+    }
+
+    private void startNext(final Connection connection){
+        while(!connection.solving){
+            int end = connection.nextExperimentEnd();
+            if(end<0){
+                return;
+            }
+            ByteBuffer request = connection.input.duplicate();
+            request.flip().limit(end);
+            final BytelandUnionExperiment experiment;
+            try {
+                IntTokenizer tokenizer = new IntTokenizer(request);
+                int numOfCities = tokenizer.nextInt();
+                experiment = new BytelandUnionExperiment(numOfCities, cityLimit);
+                int length = tokenizer.readLine(connection.parents(numOfCities - 1));
+                experiment.setAdjacencyMatrix(connection.parents, length);
+                experiment.setSolverType(solverType);
+                experiment.setResultCache(resultCache);
+                experiment.setSolverContext(connection.context);
+            }
+            catch (Exception e){
+                connection.consume(end);
+                connection.respondError(BatchRunner.messageOf(e));
+                continue;
+            }
+            connection.consume(end);
+            connection.solving = true;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        connection.respond(experiment.calculateMinUnionCount());
+                    }
+                    catch (Exception e){
+                        connection.respondError(BatchRunner.messageOf(e));
+                    }
+                    finished.add(connection);
+                    selector.wakeup();
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops serving and closes every connection.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException{
+        running = false;
+        executor.shutdownNow();
+        selector.wakeup();
+        for(SelectionKey key: selector.keys()){
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    /**
+     * State of a client connection. Input is parsed by selector thread only, output is appended by workers too.
+     */
+    private static class Connection {
+        private final SelectionKey key;
+        private ByteBuffer input = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);//Write mode, requests start at 0.
+        private ByteBuffer output = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);//Write mode.
+        private int[] parents = new int[16];
+        private final SolverContext context = new SolverContext();
+        private int scanned = 0;//Bytes of input already scanned for line ends.
+        private int linesFound = 0;//Non-empty lines completed in scanned bytes.
+        private boolean lineHasContent = false;
+        private volatile boolean solving = false;
+        private boolean closing = false;
+
+        private Connection(SelectionKey key){
+            this.key = key;
+        }
+
+        private int[] parents(int length){
+            if(parents.length<length){
+                parents = new int[Math.max(length, parents.length*2)];
+            }
+            return parents;
+        }
+
+        private void growInput(int maxCapacity){
+            ByteBuffer grown = ByteBuffer.allocate((int) Math.min((long) input.capacity()*2, maxCapacity));
+            input.flip();
+            grown.put(input);
+            input = grown;
+        }
+
+        /**
+         * Scans input for the end of the second non-empty line.
+         * @return Number of bytes the next experiment takes, -1 if it is not complete yet.
+         */
+        private int nextExperimentEnd(){
+            while(scanned<input.position()){
+                byte value = input.get(scanned++);
+                if(value=='\n'){
+                    if(lineHasContent){
+                        linesFound++;
+                        lineHasContent = false;
+                        if(linesFound==2){
+                            return scanned;
+                        }
+                    }
+                }
+                else if(value!=' ' && value!='\t' && value!='\r'){
+                    lineHasContent = true;
+                }
+            }
+            if(linesFound==2){
+                return scanned;
+            }
+            if(closing && linesFound==1 && lineHasContent){
+                return scanned;//Last line without line break.
+            }
+            return -1;
+        }
+
+        private void consume(int length){
+            input.flip();
+            input.position(length);
+            input.compact();
+            scanned = 0;
+            linesFound = 0;
+            lineHasContent = false;
+        }
+
+        private synchronized void respond(int stepNumber){
+            ensureOutput(12);
+            if(stepNumber==0){
+                output.put((byte) '0');
+            }
+            else {
+                int start = output.position();
+                for(int value=stepNumber; value>0; value/=10){
+                    output.put((byte) ('0' + value%10));
+                }
+                //Digits are written from the last one, so they are reversed in place.
+                for(int i=start, j=output.position()-1; i<j; i++, j--){
+                    byte swap = output.get(i);
+                    output.put(i, output.get(j));
+                    output.put(j, swap);
+                }
+            }
+            output.put((byte) '\n');
+        }
+
+        private synchronized void respondError(String message){
+            byte[] bytes = ("ERROR " + message + "\n").getBytes(StandardCharsets.UTF_8);
+            ensureOutput(bytes.length);
+            output.put(bytes);
+        }
+
+        private void ensureOutput(int length){
+            if(output.remaining()<length){
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(output.capacity()*2, output.position() + length));
+                output.flip();
+                grown.put(output);
+                output = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.SolverType;
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import com.sony.bytelandassessment.generator.TreeShape;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.Random;
+
+/**
+ * Runs a check on seeded random trees of several shapes, numbered and shuffled. A failing tree is shrunk by removing
+ * leaves as long as it still fails, and reported with its seed.
+ */
+class RandomTrees {
+    static final TreeShape[] SHAPES = {TreeShape.RANDOM_RECURSIVE, TreeShape.CATERPILLAR, TreeShape.BINARY};
+
+    interface Check {
+        /**
+         * @return Failure message, null if parent links pass the check.
+         */
+        String apply(int[] parents) throws Exception;
+    }
+
+    /**
+     * Applies check to given number of trees of every shape, numbered and shuffled.
+     */
+    static void run(Check check, int count, int minCities, int maxCities) throws Exception{
+        for(TreeShape shape: SHAPES){
+            for(boolean shuffle: new boolean[]{false, true}){
+                long seed = shape.ordinal()*2 + (shuffle ? 1 : 0);
+                ExperimentGenerator generator = new ExperimentGenerator(shape, seed, shuffle);
+                Random sizes = new Random(seed);
+                for(int i=0; i<count; i++){
+                    int[] parents = generator.nextParents(minCities + sizes.nextInt(maxCities - minCities + 1));
+                    if(check.apply(parents)!=null){
+                        int[] shrunk = shrink(parents, check);
+                        Assertions.fail(String.format("Experiment %s of %s (seed %s, shuffle %s) failed: %s%n" +
+                                        "Shrunk input, %s cities: %s",
+                                i, shape, seed, shuffle, check.apply(shrunk), shrunk.length + 1,
+                                ExperimentGenerator.toParentString(shrunk)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves parent links as an experiment given in input fashion.
+     */
+    static int solve(int[] parents, SolverType solverType) throws Exception{
+        BytelandUnionExperiment experiment = new BytelandUnionExperiment(parents.length + 1, Integer.MAX_VALUE);
+        experiment.setAdjacencyMatrix(ExperimentGenerator.toParentString(parents));
+        experiment.setSolverType(solverType);
+        return experiment.calculateMinUnionCount();
+    }
+
+    /**
+     * Removes leaves one by one as long as experiment keeps failing.
+     */
+    static int[] shrink(int[] parents, Check check) throws Exception{
+        boolean shrunk = true;
+        while(shrunk && parents.length>1){
+            shrunk = false;
+            boolean[] hasChild = new boolean[parents.length + 1];
+            for(int parent: parents){
+                hasChild[parent] = true;
+            }
+            for(int city=parents.length; city>0 && !shrunk; city--){
+                if(hasChild[city]){
+                    continue;
+                }
+                int[] candidate = removeLeaf(parents, city);
+                if(check.apply(candidate)!=null){
+                    parents = candidate;
+                    shrunk = true;
+                }
+            }
+        }
+        return parents;
+    }
+
+    private static int[] removeLeaf(int[] parents, int leaf){
+        int[] result = new int[parents.length - 1];
+        for(int city=1, write=0; city<=parents.length; city++){
+            if(city!=leaf){
+                int parent = parents[city - 1];
+                result[write++] = parent>leaf ? parent - 1 : parent;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+import com.sony.bytelandassessment.exceptions.WrongInputException;
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import com.sony.bytelandassessment.generator.TreeShape;
+import com.sony.bytelandassessment.io.BatchConverter;
+import com.sony.bytelandassessment.io.BinaryBatchFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestBatchConverter {
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /**
+     * Text batch converted into binary and back should be the same, and binary file should hold its parent links.
+     * @throws Exception
+     */
+    @Test
+    public void TestRoundTrip() throws Exception{
+        Path directory = Files.createTempDirectory("byteland");
+        Path text = directory.resolve("batch.txt");
+        Path binary = directory.resolve("batch.bin");
+        Path back = directory.resolve("back.txt");
+        try {
+            int count = 0;
+            int[][] experiments = new int[40][];
+            StringBuilder batch = new StringBuilder().append(experiments.length).append(LINE_SEPARATOR);
+            for(TreeShape shape: TreeShape.values()){
+                ExperimentGenerator generator = new ExperimentGenerator(shape, shape.ordinal(), true);
+                for(int i=0; i<experiments.length/TreeShape.values().length; i++){
+                    int[] parents = generator.nextParents(2 + i*i*37);
+                    experiments[count++] = parents;
+                    batch.append(parents.length + 1).append(LINE_SEPARATOR)
+                            .append(ExperimentGenerator.toParentString(parents)).append(LINE_SEPARATOR);
+                }
+            }
+            Assertions.assertEquals(experiments.length, count);
+            Files.write(text, batch.toString().getBytes(StandardCharsets.US_ASCII));
+
+            Assertions.assertEquals(count, BatchConverter.toBinary(text, binary));
+            try (BinaryBatchFile file = BinaryBatchFile.open(binary)){
+                Assertions.assertEquals(count, file.getExperimentCount());
+                for(int i=0; i<count; i++){
+                    Assertions.assertEquals(experiments[i].length + 1, file.getNumOfCities(i));
+                    int[] parents = new int[experiments[i].length];
+                    Assertions.assertEquals(parents.length, file.readParents(i, parents));
+                    Assertions.assertArrayEquals(experiments[i], parents);
+                }
+            }
+            Assertions.assertEquals(count, BatchConverter.toText(binary, back));
+            Assertions.assertArrayEquals(Files.readAllBytes(text), Files.readAllBytes(back));
+        }
+        finally {
+            Files.deleteIfExists(text);
+            Files.deleteIfExists(binary);
+            Files.deleteIfExists(back);
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * A malformed text batch should fail with its parsing error, and should not leave a binary file behind.
+     * @throws Exception
+     */
+    @Test
+    public void TestMalformedText() throws Exception{
+        Path directory = Files.createTempDirectory("byteland");
+        Path text = directory.resolve("batch.txt");
+        Path binary = directory.resolve("batch.bin");
+        try {
+            for(String batch: new String[]{"2\n3\n0 1\n3\n0\n", "2\n3\n0 1\n3\n0 x\n", "3\n3\n0 1\n"}){
+                Files.write(text, batch.getBytes(StandardCharsets.US_ASCII));
+                Exception e = Assertions.assertThrows(Exception.class, () -> BatchConverter.toBinary(text, binary));
+                Assertions.assertTrue(e instanceof WrongInputException || e instanceof EOFException,
+                        e.toString());
+                Assertions.assertFalse(Files.exists(binary), batch);
+            }
+        }
+        finally {
+            Files.deleteIfExists(text);
+            Files.deleteIfExists(binary);
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import com.sony.bytelandassessment.BatchRunner;
+import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.io.ResultWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestBatchRunner {
+    //First experiment of three is not unifiable, so the third one is read in place of it.
+    private static final String BATCH = "2\n3\n1 2\n3\n0 1\n4\n0 1 2\n";
+
+    private static String read(InputStream stream) throws Exception{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while((read = stream.read(buffer))!=-1){
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs the command line application with given arguments and input.
+     * @return Stdout and stderr of the run.
+     */
+    private static String[] run(String input, String... args) throws Exception{
+        String[] command = new String[args.length + 4];
+        command[0] = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        command[1] = "-cp";
+        command[2] = System.getProperty("java.class.path");
+        command[3] = "com.sony.bytelandassessment.Main";
+        System.arraycopy(args, 0, command, 4, args.length);
+        Path err = Files.createTempFile("byteland", ".err");
+        try {
+            Process process = new ProcessBuilder(command).redirectError(err.toFile()).start();
+            process.getOutputStream().write(input.getBytes(StandardCharsets.US_ASCII));
+            process.getOutputStream().close();
+            String out = read(process.getInputStream());
+            Assertions.assertEquals(0, process.waitFor());
+            return new String[]{out, new String(Files.readAllBytes(err), StandardCharsets.UTF_8)};
+        }
+        finally {
+            Files.delete(err);
+        }
+    }
+
+    /**
+     * A failed experiment should not be counted whatever the number of workers is, and whether the batch is read from
+     * stdin or from a file.
+     * @throws Exception
+     */
+    @Test
+    public void TestFailedExperimentsNotCounted() throws Exception{
+        Path file = Files.createTempFile("byteland", ".txt");
+        try {
+            Files.write(file, BATCH.getBytes(StandardCharsets.US_ASCII));
+            for(String workers: new String[]{"--workers=1", "--workers=2"}){
+                for(String[] result: new String[][]{run(BATCH, workers), run("", workers, "--input=" + file)}){
+                    Assertions.assertEquals("2\n2\n", result[0], workers);
+                    Assertions.assertEquals("Experiment 0: This structure is not unifiable.\n",
+                            result[1], workers);
+                }
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * An experiment failing with an exception without a message should be reported as failed and not counted,
+     * rather than answered with a step number or reported as "null".
+     * @throws Exception
+     */
+    @Test
+    public void TestFailureWithoutMessage() throws Exception{
+        for(int workers: new int[]{1, 2}){
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            WritableByteChannel outChannel = Channels.newChannel(out);
+            WritableByteChannel errChannel = Channels.newChannel(err);
+            BatchRunner runner = new BatchRunner(workers, BatchRunner.DEFAULT_MAX_IN_FLIGHT_CITIES,
+                    new ResultWriter(outChannel, errChannel, ResultWriter.DEFAULT_CAPACITY, ResultWriter.FlushPolicy.END));
+            BytelandUnionExperiment failing = new BytelandUnionExperiment(3) {
+                @Override
+                public Integer calculateMinUnionCount(){
+                    throw new NullPointerException();
+                }
+            };
+            BytelandUnionExperiment experiment = new BytelandUnionExperiment(3);
+            experiment.setAdjacencyMatrix("0 1");
+            runner.submit(0, failing);
+            runner.submit(1, experiment);
+            Assertions.assertEquals(1, runner.countSucceeded(2));
+            runner.reject(2, BatchRunner.messageOf(new ArithmeticException()));
+            runner.finish();
+            Assertions.assertEquals("2\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+            Assertions.assertEquals(String.format("Experiment 0: java.lang.NullPointerException%n" +
+                    "Experiment 2: java.lang.ArithmeticException%n"), new String(err.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+}
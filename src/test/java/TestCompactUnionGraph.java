@@ -0,0 +1,54 @@
+import com.sony.bytelandassessment.datastructure.CompactUnionGraph;
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import com.sony.bytelandassessment.generator.TreeShape;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestCompactUnionGraph {
+    /**
+     * Parallel rounds should give the same step numbers as sequential ones, for trees and for graphs with cycles.
+     * @throws Exception
+     */
+    @Test
+    public void TestParallelRounds() throws Exception{
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(13);
+            TreeShape[] shapes = {TreeShape.PATH, TreeShape.CATERPILLAR, TreeShape.RANDOM_RECURSIVE, TreeShape.BINARY};
+            for(TreeShape shape: shapes){
+                ExperimentGenerator generator = new ExperimentGenerator(shape, shape.ordinal(), shape!=TreeShape.PATH);
+                int[] parents = generator.nextParents(20000 + random.nextInt(20000));
+                CompactUnionGraph sequential = new CompactUnionGraph(parents, parents.length + 1);
+                CompactUnionGraph parallel = new CompactUnionGraph(parents, parents.length + 1);
+                parallel.setParallelPool(pool);
+                Assertions.assertEquals(sequential.unifyAndReturnStepNumber(), parallel.unifyAndReturnStepNumber(),
+                        shape.toString());
+            }
+            //Random tree with extra relations.
+            int numOfCities = 30000;
+            int[] parents = TreeShape.RANDOM_RECURSIVE.generate(numOfCities, 17);
+            List<List<Integer>> adjacencyMatrix = new ArrayList<List<Integer>>();
+            for(int city=0; city<numOfCities; city++){
+                adjacencyMatrix.add(new ArrayList<Integer>());
+            }
+            for(int city=1; city<numOfCities; city++){
+                adjacencyMatrix.get(city).add(parents[city - 1]);
+            }
+            for(int i=0; i<numOfCities/10; i++){
+                adjacencyMatrix.get(random.nextInt(numOfCities)).add(random.nextInt(numOfCities));
+            }
+            CompactUnionGraph sequential = new CompactUnionGraph(adjacencyMatrix);
+            CompactUnionGraph parallel = new CompactUnionGraph(adjacencyMatrix);
+            parallel.setParallelPool(pool);
+            Assertions.assertEquals(sequential.unifyAndReturnStepNumber(), parallel.unifyAndReturnStepNumber());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.SolverType;
+import com.sony.bytelandassessment.datastructure.CompactUnionGraph;
+import com.sony.bytelandassessment.datastructure.DisjointSetUnionGraph;
+import com.sony.bytelandassessment.datastructure.UnionGraph;
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Runs every solver on random trees and compares them with each other and with an exhaustive reference, and
+ * simulation engines on graphs with cycles, where they should take the same steps.
+ * UNION_TREE gives the exact minimum, while simulation engines follow the greedy rules of the assessment,
+ * so a simulation may need more steps than UNION_TREE but never fewer.
+ * Trees are generated and failing ones shrunk by RandomTrees.
+ */
+public class TestDifferentialSolvers {
+    /**
+     * Tree solver should give the exhaustive minimum on small trees.
+     * @throws Exception
+     */
+    @Test
+    public void TestTreeSolverAgainstReference() throws Exception{
+        RandomTrees.Check check = parents -> {
+            int expected = reference(parents);
+            for(SolverType solverType: SolverType.values()){
+                int actual = RandomTrees.solve(parents, solverType);
+                if(solverType==SolverType.UNION_TREE ? actual!=expected : actual<expected){
+                    return String.format("%s gave %s, minimum is %s", solverType, actual, expected);
+                }
+            }
+            return null;
+        };
+        RandomTrees.run(check, 2000, 2, 12);
+    }
+
+    /**
+     * Tree solver should give the exhaustive minimum on every spider (paths of any lengths joined at city 0) of up to
+     * 12 cities, where many children of one city have long critical lists.
+     * @throws Exception
+     */
+    @Test
+    public void TestTreeSolverOnSpiders() throws Exception{
+        for(int numOfCities=3; numOfCities<=12; numOfCities++){
+            spiders(new int[numOfCities - 1], 0, numOfCities - 1, numOfCities - 1);
+        }
+    }
+
+    /**
+     * Checks every spider whose legs, from the given position on, have non-increasing lengths summing to left.
+     */
+    private static void spiders(int[] legs, int count, int left, int longest) throws Exception{
+        if(left==0){
+            int[] parents = new int[legs.length];
+            for(int leg=0, city=1; leg<count; leg++){
+                for(int k=0; k<legs[leg]; k++, city++){
+                    parents[city - 1] = k==0 ? 0 : city - 1;
+                }
+            }
+            Assertions.assertEquals(reference(parents), RandomTrees.solve(parents, SolverType.UNION_TREE),
+                    ExperimentGenerator.toParentString(parents));
+            return;
+        }
+        for(int length=Math.min(left, longest); length>=1; length--){
+            legs[count] = length;
+            spiders(legs, count + 1, left - length, length);
+        }
+    }
+
+    /**
+     * Every simulation engine visits cities and resolves ties by id, so step numbers of the default solver are pinned
+     * for trees where the original solution, which went by the order of its hash sets, gave others: 3, 5, 4 and 4.
+     * @throws Exception
+     */
+    @Test
+    public void TestDefaultSolverStepNumbers() throws Exception{
+        String[] lines = {"0 7 1 3 2 5 4", "0 1 2 0 2 2 4 5", "0 0 5 3 1 5 2", "0 0 2 1 1 3 2 3 8 7 5 8 6"};
+        int[] expected = {4, 4, 3, 5};
+        SolverType[] simulations = {SolverType.UNION_GRAPH, SolverType.COMPACT_UNION_GRAPH,
+                SolverType.DISJOINT_SET_UNION_GRAPH};
+        for(int i=0; i<lines.length; i++){
+            BytelandUnionExperiment experiment = new BytelandUnionExperiment(lines[i].split(" ").length + 1);
+            experiment.setAdjacencyMatrix(lines[i]);
+            Assertions.assertEquals(expected[i], (int)experiment.calculateMinUnionCount(), lines[i]);
+            for(SolverType solverType: simulations){
+                experiment.setSolverType(solverType);
+                Assertions.assertEquals(expected[i], (int)experiment.calculateMinUnionCount(), solverType.name());
+            }
+        }
+    }
+
+    /**
+     * Tree solver should never need more steps than simulation engines, whichever way cities are numbered.
+     * @throws Exception
+     */
+    @Test
+    public void TestSolversOnLargerTrees() throws Exception{
+        final Random random = new Random(7);
+        RandomTrees.Check check = parents -> {
+            int tree = RandomTrees.solve(parents, SolverType.UNION_TREE);
+            int renumbered = RandomTrees.solve(ExperimentGenerator.renumber(parents, random), SolverType.UNION_TREE);
+            if(renumbered!=tree){
+                return String.format("UNION_TREE gave %s, after renumbering %s", tree, renumbered);
+            }
+            SolverType[] simulations = {SolverType.UNION_GRAPH, SolverType.COMPACT_UNION_GRAPH,
+                    SolverType.DISJOINT_SET_UNION_GRAPH};
+            for(SolverType solverType: simulations){
+                int simulation = RandomTrees.solve(parents, solverType);
+                if(simulation<tree){
+                    return String.format("%s gave %s, UNION_TREE gave %s", solverType, simulation, tree);
+                }
+            }
+            return null;
+        };
+        RandomTrees.run(check, 300, 13, 200);
+    }
+
+    /**
+     * Simulation engines should take the same steps on graphs with cycles too, where a merged pair leaves a neighbour
+     * in common with one relation less within the round.
+     * @throws Exception
+     */
+    @Test
+    public void TestSimulationsOnGraphsWithCycles() throws Exception{
+        int[][] rows = {{}, {0}, {0, 3}, {0}, {2}, {4}, {1}, {6}, {7}, {6, 1}, {0, 3}, {7}};
+        List<List<Integer>> adjacencyMatrix = new ArrayList<List<Integer>>();
+        for(int[] row: rows){
+            List<Integer> neighbours = new ArrayList<Integer>();
+            for(int neighbour: row){
+                neighbours.add(neighbour);
+            }
+            adjacencyMatrix.add(neighbours);
+        }
+        for(SolverType solverType: new SolverType[]{SolverType.UNION_GRAPH, SolverType.COMPACT_UNION_GRAPH,
+                SolverType.DISJOINT_SET_UNION_GRAPH}){
+            BytelandUnionExperiment experiment = new BytelandUnionExperiment(rows.length);
+            experiment.setAdjacencyMatrix(adjacencyMatrix);
+            experiment.setSolverType(solverType);
+            Assertions.assertEquals(4, (int)experiment.calculateMinUnionCount(), solverType.name());
+        }
+        Random random = new Random(29);
+        for(int i=0; i<300; i++){
+            int numOfCities = 2 + random.nextInt(i<250 ? 40 : 2000);
+            int[] parents = RandomTrees.SHAPES[i % RandomTrees.SHAPES.length].generate(numOfCities, i);
+            adjacencyMatrix = new ArrayList<List<Integer>>();
+            for(int city=0; city<numOfCities; city++){
+                adjacencyMatrix.add(new ArrayList<Integer>());
+            }
+            for(int city=1; city<numOfCities; city++){
+                adjacencyMatrix.get(city).add(parents[city - 1]);
+            }
+            for(int k=1 + random.nextInt(numOfCities); k>0; k--){
+                adjacencyMatrix.get(random.nextInt(numOfCities)).add(random.nextInt(numOfCities));
+            }
+            int expected = new UnionGraph(adjacencyMatrix).unifyAndReturnStepNumber();
+            Assertions.assertEquals(expected, new CompactUnionGraph(adjacencyMatrix).unifyAndReturnStepNumber(),
+                    adjacencyMatrix.toString());
+            Assertions.assertEquals(expected, new DisjointSetUnionGraph(adjacencyMatrix).unifyAndReturnStepNumber(),
+                    adjacencyMatrix.toString());
+        }
+    }
+
+    /**
+     * Exhaustive minimum: the edge unified in the last step splits the tree into two parts which are unified
+     * independently before it, so minimum(T) = 1 + min over edges e of max(minimum(T1), minimum(T2)).
+     */
+    private static int reference(int[] parents){
+        int numOfCities = parents.length + 1;
+        List<List<Integer>> neighbours = new ArrayList<List<Integer>>();
+        for(int i=0; i<numOfCities; i++){
+            neighbours.add(new ArrayList<Integer>());
+        }
+        for(int city=1; city<numOfCities; city++){
+            neighbours.get(city).add(parents[city - 1]);
+            neighbours.get(parents[city - 1]).add(city);
+        }
+        return reference((1 << numOfCities) - 1, neighbours, new HashMap<Integer, Integer>());
+    }
+
+    private static int reference(int cities, List<List<Integer>> neighbours, Map<Integer, Integer> memo){
+        if(Integer.bitCount(cities)==1){
+            return 0;
+        }
+        Integer known = memo.get(cities);
+        if(known!=null){
+            return known;
+        }
+        int best = Integer.MAX_VALUE;
+        for(int city=0; city<neighbours.size(); city++){
+            if((cities & (1 << city))==0){
+                continue;
+            }
+            for(int other: neighbours.get(city)){
+                if(other<city || (cities & (1 << other))==0){
+                    continue;
+                }
+                int part = reach(city, other, cities, neighbours);
+                best = Math.min(best, 1 + Math.max(reference(part, neighbours, memo),
+                        reference(cities & ~part, neighbours, memo)));
+            }
+        }
+        memo.put(cities, best);
+        return best;
+    }
+
+    /**
+     * Cities of given set reachable from start without using the relation between start and excluded.
+     */
+    private static int reach(int start, int excluded, int cities, List<List<Integer>> neighbours){
+        int visited = 1 << start;
+        int[] stack = new int[neighbours.size()];
+        int size = 0;
+        stack[size++] = start;
+        while(size>0){
+            int city = stack[--size];
+            for(int other: neighbours.get(city)){
+                int bit = 1 << other;
+                if((cities & bit)!=0 && (visited & bit)==0 && !(city==start && other==excluded)){
+                    visited |= bit;
+                    stack[size++] = other;
+                }
+            }
+        }
+        return visited;
+    }
+}
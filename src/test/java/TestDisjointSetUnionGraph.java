@@ -0,0 +1,60 @@
+import com.sony.bytelandassessment.datastructure.DisjointSetUnionGraph;
+import com.sony.bytelandassessment.datastructure.UnionGraph;
+import com.sony.bytelandassessment.exceptions.NotUnifiableException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class TestDisjointSetUnionGraph {
+    /**
+     * Disjoint-set engine should take the same steps as UnionGraph visiting nodes and resolving ties by id, also when
+     * merges leave neighbours in common.
+     * @throws Exception
+     */
+    @Test
+    public void TestSameStepsAsUnionGraph() throws Exception{
+        Random random = new Random(19);
+        for(int i=0; i<300; i++){
+            int numOfCities = 2 + random.nextInt(i<250 ? 60 : 3000);
+            int[] parents = RandomTrees.SHAPES[i % RandomTrees.SHAPES.length].generate(numOfCities, i);
+            List<List<Integer>> adjacencyMatrix = new ArrayList<List<Integer>>();
+            for(int city=0; city<numOfCities; city++){
+                adjacencyMatrix.add(new ArrayList<Integer>());
+            }
+            for(int city=1; city<numOfCities; city++){
+                adjacencyMatrix.get(city).add(parents[city - 1]);
+            }
+            int extraRelations = i % 3 == 0 ? 0 : random.nextInt(numOfCities);
+            for(int k=0; k<extraRelations; k++){
+                adjacencyMatrix.get(random.nextInt(numOfCities)).add(random.nextInt(numOfCities));
+            }
+            UnionGraph graph = new UnionGraph(adjacencyMatrix);
+            graph.setNodeOrder(UnionGraph.BY_NODE_ID);
+            graph.setCandidateOrder(UnionGraph.BY_NODE_ID);
+            int expected = graph.unifyAndReturnStepNumber();
+            Assertions.assertEquals(expected, new DisjointSetUnionGraph(adjacencyMatrix).unifyAndReturnStepNumber(),
+                    String.format("%s cities, %s extra relations", numOfCities, extraRelations));
+        }
+    }
+
+    /**
+     * Graph which falls apart should not be unifiable, neither from parent links nor from an adjacency matrix.
+     * @throws Exception
+     */
+    @Test
+    public void TestNotUnifiable() throws Exception{
+        //City 3 and 4 are linked to each other only.
+        DisjointSetUnionGraph fromParents = new DisjointSetUnionGraph(new int[]{0, 1, 4, 3}, 5);
+        Assertions.assertThrows(NotUnifiableException.class, () -> fromParents.unifyAndReturnStepNumber());
+        List<List<Integer>> adjacencyMatrix = new ArrayList<List<Integer>>();
+        adjacencyMatrix.add(Arrays.asList(1));
+        adjacencyMatrix.add(Arrays.asList(0));
+        adjacencyMatrix.add(new ArrayList<Integer>());
+        DisjointSetUnionGraph fromMatrix = new DisjointSetUnionGraph(adjacencyMatrix);
+        Assertions.assertThrows(NotUnifiableException.class, () -> fromMatrix.unifyAndReturnStepNumber());
+    }
+}
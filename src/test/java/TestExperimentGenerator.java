@@ -0,0 +1,102 @@
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import com.sony.bytelandassessment.generator.TreeShape;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestExperimentGenerator {
+
+    /**
+     * Checks if parent links form a tree every city of which reaches city 0.
+     */
+    private static boolean isTree(int[] parents){
+        for(int city=1; city<=parents.length; city++){
+            int ancestor = city;
+            for(int steps=0; ancestor!=0; steps++){
+                if(steps>parents.length || parents[ancestor - 1]<0 || parents[ancestor - 1]>parents.length){
+                    return false;
+                }
+                ancestor = parents[ancestor - 1];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same seed should give the same experiments, and every shape should give trees, shuffled ones too.
+     * @throws Exception
+     */
+    @Test
+    public void TestSeededTrees() throws Exception{
+        for(TreeShape shape: TreeShape.values()){
+            for(boolean shuffle: new boolean[]{false, true}){
+                ExperimentGenerator generator = new ExperimentGenerator(shape, 31, shuffle);
+                ExperimentGenerator again = new ExperimentGenerator(shape, 31, shuffle);
+                for(int numOfCities=2; numOfCities<200; numOfCities+=7){
+                    int[] parents = generator.nextParents(numOfCities);
+                    Assertions.assertEquals(numOfCities - 1, parents.length);
+                    Assertions.assertTrue(isTree(parents), ExperimentGenerator.toParentString(parents));
+                    Assertions.assertEquals(ExperimentGenerator.toParentString(parents), again.nextExperiment(numOfCities));
+                }
+            }
+        }
+        Assertions.assertEquals("0 1 2", ExperimentGenerator.toParentString(TreeShape.PATH.generate(4, 0)));
+        Assertions.assertEquals("0 0 0", ExperimentGenerator.toParentString(TreeShape.STAR.generate(4, 0)));
+        Assertions.assertEquals("0 0 1 1", ExperimentGenerator.toParentString(TreeShape.BINARY.generate(5, 0)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TreeShape.PATH.generate(1, 0));
+    }
+
+    /**
+     * Renumbering should keep city 0 and the number of children of every city.
+     * @throws Exception
+     */
+    @Test
+    public void TestRenumber() throws Exception{
+        Random random = new Random(37);
+        for(int i=0; i<100; i++){
+            int[] parents = TreeShape.RANDOM_RECURSIVE.generate(2 + random.nextInt(100), random.nextLong());
+            int[] renumbered = ExperimentGenerator.renumber(parents, random);
+            Assertions.assertTrue(isTree(renumbered), ExperimentGenerator.toParentString(renumbered));
+            int[] degrees = new int[parents.length + 1];
+            int[] renumberedDegrees = new int[parents.length + 1];
+            for(int k=0; k<parents.length; k++){
+                degrees[parents[k]]++;
+                renumberedDegrees[renumbered[k]]++;
+            }
+            Assertions.assertEquals(degrees[0], renumberedDegrees[0]);
+            Arrays.sort(degrees);
+            Arrays.sort(renumberedDegrees);
+            Assertions.assertArrayEquals(degrees, renumberedDegrees);
+        }
+    }
+
+    /**
+     * A failing tree should be shrunk until removing any leaf makes it pass, keeping parent links a tree.
+     * @throws Exception
+     */
+    @Test
+    public void TestShrink() throws Exception{
+        //Fails while some city has at least three children.
+        RandomTrees.Check check = parents -> {
+            int[] children = new int[parents.length + 1];
+            for(int parent: parents){
+                if(++children[parent]>=3){
+                    return "City with three children";
+                }
+            }
+            return null;
+        };
+        int[] parents = TreeShape.STAR.generate(50, 0);
+        int[] shrunk = RandomTrees.shrink(parents, check);
+        Assertions.assertEquals("0 0 0", ExperimentGenerator.toParentString(shrunk));
+        parents = ExperimentGenerator.renumber(TreeShape.CATERPILLAR.generate(300, 41), new Random(41));
+        Assertions.assertNotNull(check.apply(parents));
+        shrunk = RandomTrees.shrink(parents, check);
+        Assertions.assertTrue(shrunk.length < parents.length);
+        Assertions.assertTrue(isTree(shrunk));
+        Assertions.assertNotNull(check.apply(shrunk));
+        Assertions.assertArrayEquals(shrunk, RandomTrees.shrink(shrunk, check));
+    }
+}
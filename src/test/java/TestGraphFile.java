@@ -0,0 +1,61 @@
+import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.SolverType;
+import com.sony.bytelandassessment.exceptions.NotUnifiableException;
+import com.sony.bytelandassessment.io.GraphFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestGraphFile {
+    /**
+     * Prepared graph files should be solved like the parent links they are prepared from, when opened again too.
+     * @throws Exception
+     */
+    @Test
+    public void TestSolvedLikeParentLinks() throws Exception{
+        final Path path = Files.createTempFile("graph", ".bin");
+        try {
+            RandomTrees.Check check = parents -> {
+                int numOfCities = parents.length + 1;
+                GraphFile.create(path, parents, numOfCities).close();
+                GraphFile file = GraphFile.open(path);
+                try {
+                    for(SolverType solverType: new SolverType[]{SolverType.UNION_TREE, SolverType.COMPACT_UNION_GRAPH}){
+                        BytelandUnionExperiment experiment = new BytelandUnionExperiment(numOfCities, Integer.MAX_VALUE);
+                        experiment.setAdjacencyMatrix(file);
+                        experiment.setSolverType(solverType);
+                        int expected = RandomTrees.solve(parents, solverType);
+                        int actual = experiment.calculateMinUnionCount();
+                        if(actual!=expected){
+                            return String.format("%s gave %s from graph file, %s from parent links",
+                                    solverType, actual, expected);
+                        }
+                    }
+                }
+                finally {
+                    file.close();
+                }
+                return null;
+            };
+            RandomTrees.run(check, 50, 2, 3000);
+
+            //City 3 and 4 are linked to each other only.
+            GraphFile file = GraphFile.create(path, new int[]{0, 1, 4, 3}, 5);
+            try {
+                Assertions.assertFalse(file.isConnected());
+                BytelandUnionExperiment experiment = new BytelandUnionExperiment(5, Integer.MAX_VALUE);
+                experiment.setAdjacencyMatrix(file);
+                experiment.setSolverType(SolverType.UNION_TREE);
+                Assertions.assertThrows(NotUnifiableException.class, () -> experiment.calculateMinUnionCount());
+            }
+            finally {
+                file.close();
+            }
+        }
+        finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import com.sony.bytelandassessment.datastructure.IncrementalUnionTree;
+import com.sony.bytelandassessment.datastructure.UnionTree;
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import com.sony.bytelandassessment.generator.TreeShape;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TestIncrementalUnionTree {
+    /**
+     * Incremental tree should give the same step number as a tree solved from scratch after every change.
+     * @throws Exception
+     */
+    @Test
+    public void TestAgainstTreeSolvedFromScratch() throws Exception{
+        Random random = new Random(11);
+        for(int tree=0; tree<20; tree++){
+            int[] initial = TreeShape.RANDOM_RECURSIVE.generate(2 + random.nextInt(50), random.nextLong());
+            IncrementalUnionTree incremental = new IncrementalUnionTree(initial, initial.length + 1);
+            List<Integer> nodes = new ArrayList<Integer>();//Live node ids.
+            Map<Integer, Integer> parents = new HashMap<Integer, Integer>();
+            for(int city=0; city<=initial.length; city++){
+                nodes.add(city);
+                parents.put(city, city == 0 ? -1 : initial[city - 1]);
+            }
+            for(int change=0; change<200; change++){
+                int node = nodes.get(random.nextInt(nodes.size()));
+                int operation = random.nextInt(3);
+                if(operation==0 || nodes.size()<3){
+                    int leaf = incremental.addLeaf(node);
+                    nodes.add(leaf);
+                    parents.put(leaf, node);
+                }
+                else if(operation==1 && node!=0 && !parents.containsValue(node)){
+                    incremental.removeLeaf(node);
+                    nodes.remove(Integer.valueOf(node));
+                    parents.remove(node);
+                }
+                else if(operation==2 && node!=0){
+                    int newParent = nodes.get(random.nextInt(nodes.size()));
+                    boolean cycle = false;
+                    for(int ancestor=newParent; ancestor>=0; ancestor=parents.get(ancestor)){
+                        cycle |= ancestor==node;
+                    }
+                    if(!cycle){
+                        incremental.reparent(node, newParent);
+                        parents.put(node, newParent);
+                    }
+                }
+                //Live ids are numbered densely to solve the same tree from scratch.
+                Map<Integer, Integer> ids = new HashMap<Integer, Integer>();
+                for(int id: nodes){
+                    ids.put(id, ids.size());
+                }
+                int[] links = new int[nodes.size() - 1];
+                for(int id: nodes){
+                    if(id!=0){
+                        links[ids.get(id) - 1] = ids.get(parents.get(id));
+                    }
+                }
+                Assertions.assertEquals(new UnionTree(links, nodes.size()).unifyAndReturnStepNumber(),
+                        incremental.unifyAndReturnStepNumber(),
+                        String.format("Tree %s, change %s: %s", tree, change, ExperimentGenerator.toParentString(links)));
+            }
+        }
+    }
+}
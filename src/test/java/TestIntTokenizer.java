@@ -0,0 +1,89 @@
+import com.sony.bytelandassessment.exceptions.WrongInputException;
+import com.sony.bytelandassessment.io.IntTokenizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+public class TestIntTokenizer {
+    private static final String BATCH = "2\r\n3\n 0\t1 \n\n\n4\n-1 +2 2147483647 -2147483648\n";
+
+    private static IntTokenizer tokenizer(byte[] bytes, int bufferSize){
+        return new IntTokenizer(Channels.newChannel(new ByteArrayInputStream(bytes)), bufferSize);
+    }
+
+    /**
+     * Values and lines should be read the same whatever size the buffer is, also when tokens span refills.
+     * @throws Exception
+     */
+    @Test
+    public void TestBufferSizes() throws Exception{
+        byte[] bytes = BATCH.getBytes(StandardCharsets.US_ASCII);
+        for(int bufferSize=1; bufferSize<=bytes.length + 1; bufferSize++){
+            IntTokenizer tokenizer = tokenizer(bytes, bufferSize);
+            Assertions.assertEquals(2, tokenizer.nextInt());
+            Assertions.assertEquals(3, tokenizer.nextInt());
+            int[] line = new int[4];
+            Assertions.assertEquals(2, tokenizer.readLine(line));
+            Assertions.assertArrayEquals(new int[]{0, 1, 0, 0}, line);
+            Assertions.assertEquals(4, tokenizer.nextInt());
+            //Values which do not fit are counted.
+            line = new int[3];
+            Assertions.assertEquals(4, tokenizer.readLine(line), String.valueOf(bufferSize));
+            Assertions.assertArrayEquals(new int[]{-1, 2, Integer.MAX_VALUE}, line);
+            Assertions.assertFalse(tokenizer.hasNext());
+            IntTokenizer finished = tokenizer;
+            Assertions.assertThrows(EOFException.class, () -> finished.nextInt());
+        }
+    }
+
+    /**
+     * A token which is not an integer should fail, and reading should go on from the next line.
+     * Bytes above 0x7F are not the end of input.
+     * @throws Exception
+     */
+    @Test
+    public void TestWrongTokens() throws Exception{
+        byte[][] lines = {"1 x 2".getBytes(StandardCharsets.US_ASCII), "1 2a".getBytes(StandardCharsets.US_ASCII),
+                "2147483648".getBytes(StandardCharsets.US_ASCII), "99999999999999999999".getBytes(StandardCharsets.US_ASCII),
+                "-".getBytes(StandardCharsets.US_ASCII), {'1', ' ', (byte)0xFF, ' ', '2'}, {'1', (byte)0x80}};
+        for(byte[] line: lines){
+            byte[] bytes = new byte[line.length + 3];
+            System.arraycopy(line, 0, bytes, 0, line.length);
+            bytes[line.length] = '\n';
+            bytes[line.length + 1] = '7';
+            bytes[line.length + 2] = '\n';
+            for(int bufferSize: new int[]{1, 3, 64}){
+                IntTokenizer tokenizer = tokenizer(bytes, bufferSize);
+                Assertions.assertThrows(WrongInputException.class, () -> tokenizer.readLine(new int[4]));
+                Assertions.assertEquals(7, tokenizer.nextInt());
+                Assertions.assertFalse(tokenizer.hasNext());
+            }
+        }
+    }
+
+    /**
+     * Buffer should be read in place from its position to its limit, and its position should be kept.
+     * @throws Exception
+     */
+    @Test
+    public void TestBuffer() throws Exception{
+        ByteBuffer buffer = ByteBuffer.wrap("9 8\n7 6\n5".getBytes(StandardCharsets.US_ASCII));
+        buffer.position(4).limit(8);
+        IntTokenizer tokenizer = new IntTokenizer(buffer);
+        int[] line = new int[2];
+        Assertions.assertEquals(2, tokenizer.readLine(line));
+        Assertions.assertArrayEquals(new int[]{7, 6}, line);
+        Assertions.assertFalse(tokenizer.hasNext());
+        Assertions.assertEquals(4, buffer.position());
+        //Skipped lines.
+        tokenizer = new IntTokenizer(new ByteArrayInputStream("\n1 2\n\n3 4\n5".getBytes(StandardCharsets.US_ASCII)));
+        tokenizer.skipNextLine();
+        tokenizer.skipNextLine();
+        Assertions.assertEquals(5, tokenizer.nextInt());
+    }
+}
@@ -0,0 +1,62 @@
+import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.SolverType;
+import com.sony.bytelandassessment.cache.ResultCache;
+import com.sony.bytelandassessment.cache.TreeKey;
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import com.sony.bytelandassessment.generator.TreeShape;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class TestResultCache {
+    /**
+     * Cached results should match solved ones, and renumbered trees should share their key.
+     * @throws Exception
+     */
+    @Test
+    public void TestCachedResultsMatchSolved() throws Exception{
+        ResultCache cache = new ResultCache(64);
+        Random random = new Random(5);
+        ExperimentGenerator generator = new ExperimentGenerator(TreeShape.RANDOM_RECURSIVE, 5, false);
+        for(int i=0; i<500; i++){
+            int[] parents = generator.nextParents(2 + random.nextInt(10));
+            int[] renumbered = ExperimentGenerator.renumber(parents, random);
+            Assertions.assertEquals(TreeKey.of(parents, parents.length + 1),
+                    TreeKey.of(renumbered, renumbered.length + 1));
+            BytelandUnionExperiment experiment = new BytelandUnionExperiment(parents.length + 1);
+            experiment.setAdjacencyMatrix(renumbered);
+            experiment.setSolverType(SolverType.UNION_TREE);
+            experiment.setResultCache(cache);
+            Assertions.assertEquals(RandomTrees.solve(renumbered, SolverType.UNION_TREE), (int)experiment.calculateMinUnionCount(),
+                    ExperimentGenerator.toParentString(renumbered));
+        }
+        Assertions.assertEquals(500, cache.getHits() + cache.getMisses());
+        Assertions.assertTrue(cache.getHits()>0 && cache.getEvictions()>0);
+        Assertions.assertNull(TreeKey.of(new int[]{2, 1}, 3));
+    }
+
+    /**
+     * Least recently used entry should be evicted first.
+     * @throws Exception
+     */
+    @Test
+    public void TestEviction() throws Exception{
+        ResultCache cache = new ResultCache(2);
+        TreeKey path = TreeKey.of(TreeShape.PATH.generate(4, 0), 4);
+        TreeKey star = TreeKey.of(TreeShape.STAR.generate(4, 0), 4);
+        TreeKey binary = TreeKey.of(TreeShape.BINARY.generate(7, 0), 7);
+        cache.put(path, 2);
+        cache.put(star, 3);
+        Assertions.assertEquals(2, (int)cache.get(path));
+        cache.put(binary, 3);
+        Assertions.assertNull(cache.get(star));
+        Assertions.assertEquals(2, (int)cache.get(path));
+        Assertions.assertEquals(3, (int)cache.get(binary));
+        Assertions.assertEquals(2, cache.getSize());
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertEquals(3, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ResultCache(0));
+    }
+}
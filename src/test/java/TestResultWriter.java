@@ -0,0 +1,219 @@
+import com.sony.bytelandassessment.io.ResultWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestResultWriter {
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /**
+     * Channel which collects written bytes, counts writes and can be held before writing.
+     */
+    private static class RecordingChannel implements WritableByteChannel {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final AtomicInteger writes = new AtomicInteger();
+        private final CountDownLatch gate;
+
+        private RecordingChannel(CountDownLatch gate){
+            this.gate = gate;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException{
+            try {
+                gate.await();
+            }
+            catch (InterruptedException e){
+                throw new IOException(e);
+            }
+            int length = source.remaining();
+            synchronized (bytes){
+                while(source.hasRemaining()){
+                    bytes.write(source.get());
+                }
+            }
+            writes.incrementAndGet();
+            return length;
+        }
+
+        private String text(){
+            synchronized (bytes){
+                return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+            }
+        }
+
+        @Override
+        public boolean isOpen(){
+            return true;
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    /**
+     * Waits until given condition holds, fails after a few seconds.
+     */
+    private static void await(Condition condition) throws InterruptedException{
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(!condition.holds()){
+            Assertions.assertTrue(System.nanoTime() < deadline, "Condition did not hold in time.");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Results and errors should be written in the order they are queued when both streams go to the same place,
+     * whatever the flush policy is.
+     * @throws Exception
+     */
+    @Test
+    public void TestOrderAcrossStreams() throws Exception{
+        for(ResultWriter.FlushPolicy policy: ResultWriter.FlushPolicy.values()){
+            ByteArrayOutputStream terminal = new ByteArrayOutputStream();
+            WritableByteChannel channel = Channels.newChannel(terminal);
+            ResultWriter writer = new ResultWriter(channel, channel, 4, policy);
+            StringBuilder expected = new StringBuilder();
+            for(int i=0; i<1000; i++){
+                if(i%7==3){
+                    writer.writeError(i, "Wrong " + i);
+                    expected.append("Experiment ").append(i).append(": Wrong ").append(i).append(LINE_SEPARATOR);
+                }
+                else {
+                    writer.writeResult(i, i - 500);
+                    expected.append(i - 500).append('\n');
+                }
+            }
+            writer.close();
+            Assertions.assertEquals(expected.toString(), new String(terminal.toByteArray(), StandardCharsets.UTF_8),
+                    policy.name());
+        }
+    }
+
+    /**
+     * A producer should wait while the queue is full and go on once output is written.
+     * @throws Exception
+     */
+    @Test
+    public void TestBackpressure() throws Exception{
+        CountDownLatch gate = new CountDownLatch(1);
+        RecordingChannel out = new RecordingChannel(gate);
+        ResultWriter writer = new ResultWriter(out, new RecordingChannel(new CountDownLatch(0)), 2,
+                ResultWriter.FlushPolicy.RECORD);
+        CountDownLatch queued = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread producer = new Thread(() -> {
+            try {
+                for(int i=0; i<10; i++){
+                    writer.writeResult(i, i);
+                }
+                queued.countDown();
+            }
+            catch (Exception e){
+                failure.set(e);
+            }
+        });
+        producer.start();
+        //Writer thread holds one record and the queue two, the rest waits.
+        Assertions.assertFalse(queued.await(300, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(producer.isAlive());
+        gate.countDown();
+        Assertions.assertTrue(queued.await(5, TimeUnit.SECONDS));
+        producer.join();
+        Assertions.assertNull(failure.get());
+        writer.close();
+        Assertions.assertEquals("0\n1\n2\n3\n4\n5\n6\n7\n8\n9\n", out.text());
+    }
+
+    /**
+     * RECORD should write every record right away, IDLE once no record is waiting, END only when writer is closed.
+     * @throws Exception
+     */
+    @Test
+    public void TestFlushPolicies() throws Exception{
+        RecordingChannel out = new RecordingChannel(new CountDownLatch(0));
+        ResultWriter writer = new ResultWriter(out, out, 16, ResultWriter.FlushPolicy.RECORD);
+        for(int i=0; i<5; i++){
+            writer.writeResult(i, i);
+            int written = i + 1;
+            await(() -> out.writes.get()==written);
+        }
+        writer.close();
+        Assertions.assertEquals("0\n1\n2\n3\n4\n", out.text());
+
+        RecordingChannel idle = new RecordingChannel(new CountDownLatch(0));
+        writer = new ResultWriter(idle, idle, 16, ResultWriter.FlushPolicy.IDLE);
+        writer.writeResult(0, 7);
+        await(() -> idle.text().equals("7\n"));
+        writer.close();
+
+        RecordingChannel end = new RecordingChannel(new CountDownLatch(0));
+        writer = new ResultWriter(end, end, 16, ResultWriter.FlushPolicy.END);
+        for(int i=0; i<100; i++){
+            writer.writeResult(i, 1);
+        }
+        Thread.sleep(200);
+        Assertions.assertEquals(0, end.writes.get());
+        writer.close();
+        Assertions.assertEquals(1, end.writes.get());
+        Assertions.assertEquals(200, end.text().length());
+    }
+
+    /**
+     * Failure of the writer thread should reach producers instead of leaving them waiting for room in the queue,
+     * also when the writer thread is interrupted.
+     * @throws Exception
+     */
+    @Test
+    public void TestWriterFailure() throws Exception{
+        WritableByteChannel failing = new RecordingChannel(new CountDownLatch(0)) {
+            @Override
+            public int write(ByteBuffer source) throws IOException{
+                throw new IOException("Disk full.");
+            }
+        };
+        WritableByteChannel interrupting = new RecordingChannel(new CountDownLatch(0)) {
+            @Override
+            public int write(ByteBuffer source) throws IOException{
+                int length = super.write(source);
+                Thread.currentThread().interrupt();
+                return length;
+            }
+        };
+        for(WritableByteChannel channel: new WritableByteChannel[]{failing, interrupting}){
+            ResultWriter writer = new ResultWriter(channel, channel, 1, ResultWriter.FlushPolicy.RECORD);
+            AtomicReference<Exception> failure = new AtomicReference<Exception>();
+            Thread producer = new Thread(() -> {
+                try {
+                    for(int i=0; i<1000; i++){
+                        writer.writeResult(i, i);
+                    }
+                }
+                catch (Exception e){
+                    failure.set(e);
+                }
+            });
+            producer.setDaemon(true);
+            producer.start();
+            producer.join(5000);
+            Assertions.assertFalse(producer.isAlive(), "Producer is still waiting.");
+            Assertions.assertTrue(failure.get() instanceof IOException);
+            Assertions.assertThrows(IOException.class, () -> writer.close());
+        }
+    }
+}
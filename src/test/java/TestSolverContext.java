@@ -0,0 +1,41 @@
+import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.SolverType;
+import com.sony.bytelandassessment.datastructure.SolverContext;
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import com.sony.bytelandassessment.generator.TreeShape;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class TestSolverContext {
+    /**
+     * Solving one experiment after another in the same context should give the same results as fresh solvers,
+     * whether experiments grow or shrink, and context should stop growing once the largest one is seen.
+     * @throws Exception
+     */
+    @Test
+    public void TestReuseAcrossExperiments() throws Exception{
+        SolverContext context = new SolverContext();
+        Random random = new Random(3);
+        ExperimentGenerator generator = new ExperimentGenerator(TreeShape.RANDOM_RECURSIVE, 3, true);
+        long retainedBytes = 0;
+        for(int i=0; i<400; i++){
+            int[] parents = generator.nextParents(2 + random.nextInt(i<200 ? 300 : 150));
+            SolverType[] solverTypes = {SolverType.UNION_TREE, SolverType.COMPACT_UNION_GRAPH,
+                    SolverType.DISJOINT_SET_UNION_GRAPH};
+            for(SolverType solverType: solverTypes){
+                BytelandUnionExperiment experiment = new BytelandUnionExperiment(parents.length + 1, Integer.MAX_VALUE);
+                experiment.setAdjacencyMatrix(parents);
+                experiment.setSolverType(solverType);
+                experiment.setSolverContext(context);
+                Assertions.assertEquals(RandomTrees.solve(parents, solverType), (int)experiment.calculateMinUnionCount(),
+                        String.format("%s: %s", solverType, ExperimentGenerator.toParentString(parents)));
+            }
+            if(i==200){
+                retainedBytes = context.getRetainedBytes();
+            }
+        }
+        Assertions.assertEquals(retainedBytes, context.getRetainedBytes());
+    }
+}
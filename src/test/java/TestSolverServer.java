@@ -0,0 +1,168 @@
+import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.SolverType;
+import com.sony.bytelandassessment.server.SolverServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class TestSolverServer {
+    private interface Client {
+        void talk(Socket socket, BufferedReader reader) throws Exception;
+    }
+
+    /**
+     * Starts a server on a free port, runs given client against it and stops the server.
+     */
+    private static void serve(SolverType solverType, Client client) throws Exception{
+        serve(solverType, 1 << 20, client, null);
+    }
+
+    /**
+     * Starts a server with given city limit, runs given clients against it one after another and stops the server.
+     */
+    private static void serve(SolverType solverType, int cityLimit, Client client, Client next) throws Exception{
+        final SolverServer server = new SolverServer(new InetSocketAddress("127.0.0.1", 0), 2, cityLimit,
+                solverType, null);
+        Thread thread = new Thread(() -> {
+            try {
+                server.run();
+            }
+            catch (Exception e){
+                //Selector is closed when the server is closed.
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())){
+            socket.setSoTimeout(30000);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            client.talk(socket, reader);
+            if(next!=null){
+                try (Socket nextSocket = new Socket("127.0.0.1", server.getPort())){
+                    nextSocket.setSoTimeout(30000);
+                    next.talk(nextSocket, new BufferedReader(new InputStreamReader(nextSocket.getInputStream(),
+                            StandardCharsets.UTF_8)));
+                }
+            }
+        }
+        finally {
+            server.close();
+        }
+    }
+
+    private static void send(Socket socket, String requests) throws Exception{
+        OutputStream stream = socket.getOutputStream();
+        stream.write(requests.getBytes(StandardCharsets.US_ASCII));
+        stream.flush();
+    }
+
+    /**
+     * Requests sent at once should be answered one line each, in request order.
+     * @throws Exception
+     */
+    @Test
+    public void TestPipelinedRequests() throws Exception{
+        serve(SolverType.UNION_GRAPH, (socket, reader) -> {
+            StringBuilder requests = new StringBuilder();
+            for(int i=0; i<100; i++){
+                requests.append("2\n0\n3\n0 1\n\n4\r\n0 0 0\n");
+            }
+            send(socket, requests.toString());
+            for(int i=0; i<100; i++){
+                Assertions.assertEquals("1", reader.readLine());
+                Assertions.assertEquals("2", reader.readLine());
+                Assertions.assertEquals("3", reader.readLine());
+            }
+        });
+    }
+
+    /**
+     * An experiment larger than the initial input buffer should be read as a whole, also between smaller ones.
+     * @throws Exception
+     */
+    @Test
+    public void TestLargeRequest() throws Exception{
+        final int numOfCities = 100000;
+        final int[] parents = new int[numOfCities - 1];
+        StringBuilder line = new StringBuilder();
+        for(int i=0; i<parents.length; i++){
+            parents[i] = i;
+            line.append(i).append(' ');
+        }
+        Assertions.assertTrue(line.length() > 1 << 16);
+        BytelandUnionExperiment experiment = new BytelandUnionExperiment(numOfCities, numOfCities);
+        experiment.setAdjacencyMatrix(parents);
+        experiment.setSolverType(SolverType.UNION_TREE);
+        final int expected = experiment.calculateMinUnionCount();
+        final String request = numOfCities + "\n" + line + "\n";
+        serve(SolverType.UNION_TREE, (socket, reader) -> {
+            send(socket, "2\n0\n" + request + request + "2\n0\n");
+            Assertions.assertEquals("1", reader.readLine());
+            Assertions.assertEquals(String.valueOf(expected), reader.readLine());
+            Assertions.assertEquals(String.valueOf(expected), reader.readLine());
+            Assertions.assertEquals("1", reader.readLine());
+        });
+    }
+
+    /**
+     * A wrong experiment should be answered by an error line in its place, and the connection should still be served.
+     * @throws Exception
+     */
+    @Test
+    public void TestErrorResponse() throws Exception{
+        serve(SolverType.UNION_GRAPH, (socket, reader) -> {
+            send(socket, "3\n0\n3\n0 x\n3\n1 2\n2\n0\n");
+            Assertions.assertEquals("ERROR Number of relations should be equal to 2", reader.readLine());
+            Assertions.assertTrue(reader.readLine().startsWith("ERROR "));
+            Assertions.assertEquals("ERROR This structure is not unifiable.", reader.readLine());
+            Assertions.assertEquals("1", reader.readLine());
+        });
+    }
+
+    /**
+     * Last experiment of a client which shuts its output down should be answered without a line break after it,
+     * then the connection should be closed.
+     * @throws Exception
+     */
+    @Test
+    public void TestLastLineWithoutLineBreak() throws Exception{
+        serve(SolverType.UNION_GRAPH, (socket, reader) -> {
+            send(socket, "2\n0\n3\n0 1");
+            socket.shutdownOutput();
+            Assertions.assertEquals("1", reader.readLine());
+            Assertions.assertEquals("2", reader.readLine());
+            Assertions.assertNull(reader.readLine());
+        });
+    }
+
+    /**
+     * A client whose request grows beyond the largest valid one should be answered by an error and dropped, while
+     * other clients are still served. With a city limit of 1000 no request is larger than the initial buffer.
+     * @throws Exception
+     */
+    @Test
+    public void TestOversizedRequest() throws Exception{
+        serve(SolverType.UNION_GRAPH, 1000, (socket, reader) -> {
+            send(socket, "2\n0\n");
+            Assertions.assertEquals("1", reader.readLine());
+            StringBuilder request = new StringBuilder("3\n");
+            while(request.length() < 1 << 16){
+                request.append("1 ");
+            }
+            request.setLength(1 << 16);//Exactly fills input, so nothing is left unread when connection is closed.
+            send(socket, request.toString());
+            Assertions.assertEquals("ERROR Request is larger than 65536 bytes.", reader.readLine());
+            Assertions.assertNull(reader.readLine());
+        }, (socket, reader) -> {
+            send(socket, "3\n0 1\n");
+            Assertions.assertEquals("2", reader.readLine());
+        });
+    }
+}
@@ -0,0 +1,93 @@
+import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.SolverType;
+import com.sony.bytelandassessment.exceptions.WrongInputException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestSubtreeQueries {
+    /**
+     * Subtree queries should give the minimum of every subtree solved as an experiment of its own.
+     * @throws Exception
+     */
+    @Test
+    public void TestAgainstSubtreesSolvedAlone() throws Exception{
+        RandomTrees.Check check = parents -> {
+            int numOfCities = parents.length + 1;
+            List<List<Integer>> neighbours = new ArrayList<List<Integer>>();
+            for(int city=0; city<numOfCities; city++){
+                neighbours.add(new ArrayList<Integer>());
+            }
+            for(int city=1; city<numOfCities; city++){
+                neighbours.get(city).add(parents[city - 1]);
+                neighbours.get(parents[city - 1]).add(city);
+            }
+            //Breadth first order from city 0 gives parents of the rooted tree.
+            int[] rootedParents = new int[numOfCities];
+            int[] order = new int[numOfCities];
+            rootedParents[0] = -1;
+            for(int head=0, size=1; head<size; head++){
+                for(int neighbour: neighbours.get(order[head])){
+                    if(neighbour!=rootedParents[order[head]]){
+                        rootedParents[neighbour] = order[head];
+                        order[size++] = neighbour;
+                    }
+                }
+            }
+            int[] cities = new int[numOfCities];
+            for(int city=0; city<numOfCities; city++){
+                cities[city] = city;
+            }
+            BytelandUnionExperiment experiment = new BytelandUnionExperiment(numOfCities, Integer.MAX_VALUE);
+            experiment.setAdjacencyMatrix(parents);
+            int[] answers = experiment.calculateSubtreeUnionCounts(cities);
+            for(int root=0; root<numOfCities; root++){
+                //Cities of the subtree come after its root in breadth first order; root is renumbered to 0.
+                Map<Integer, Integer> numbers = new HashMap<Integer, Integer>();
+                List<Integer> subtreeParents = new ArrayList<Integer>();
+                numbers.put(root, 0);
+                for(int city: order){
+                    if(city!=root && numbers.containsKey(rootedParents[city])){
+                        subtreeParents.add(numbers.get(rootedParents[city]));
+                        numbers.put(city, numbers.size());
+                    }
+                }
+                int expected = 0;
+                if(!subtreeParents.isEmpty()){
+                    int[] links = new int[subtreeParents.size()];
+                    for(int i=0; i<links.length; i++){
+                        links[i] = subtreeParents.get(i);
+                    }
+                    expected = RandomTrees.solve(links, SolverType.UNION_TREE);
+                }
+                if(answers[root]!=expected){
+                    return String.format("Subtree of %s needs %s steps, query gave %s", root, expected, answers[root]);
+                }
+            }
+            return null;
+        };
+        RandomTrees.run(check, 100, 2, 60);
+    }
+
+    /**
+     * Queries should be answered in the order of cities, the same after the experiment is solved, and cities out of
+     * range should be rejected.
+     * @throws Exception
+     */
+    @Test
+    public void TestQueries() throws Exception{
+        //Path 0-1-2-3 with city 4 hanging on city 1.
+        BytelandUnionExperiment experiment = new BytelandUnionExperiment(5);
+        experiment.setAdjacencyMatrix("0 1 2 1");
+        Assertions.assertArrayEquals(new int[]{0, 2, 1, 3}, experiment.calculateSubtreeUnionCounts(3, 1, 2, 0));
+        Assertions.assertEquals(3, (int)experiment.calculateMinUnionCount());
+        Assertions.assertArrayEquals(new int[]{0, 0}, experiment.calculateSubtreeUnionCounts(4, 4));
+        Assertions.assertArrayEquals(new int[0], experiment.calculateSubtreeUnionCounts());
+        Assertions.assertThrows(WrongInputException.class, () -> experiment.calculateSubtreeUnionCounts(0, 5));
+        Assertions.assertThrows(WrongInputException.class, () -> experiment.calculateSubtreeUnionCounts(-1));
+    }
+}
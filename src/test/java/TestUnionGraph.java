@@ -1,7 +1,23 @@
 import com.sony.bytelandassessment.BytelandUnionExperiment;
+import com.sony.bytelandassessment.SolverType;
+import com.sony.bytelandassessment.datastructure.Node;
+import com.sony.bytelandassessment.datastructure.Relation;
+import com.sony.bytelandassessment.datastructure.UnionGraph;
+import com.sony.bytelandassessment.datastructure.CompactUnionGraph;
+import com.sony.bytelandassessment.exceptions.NotUnifiableException;
+import com.sony.bytelandassessment.generator.ExperimentGenerator;
+import com.sony.bytelandassessment.generator.TreeShape;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 public class TestUnionGraph {
     BytelandUnionExperiment experiment;
 
@@ -24,4 +40,205 @@ public class TestUnionGraph {
         this.experiment.setAdjacencyMatrix("0 1 1 1 1 0 2 2");
         Assertions.assertEquals((int)this.experiment.calculateMinUnionCount(), 5);
     }
+
+    /**
+     * Test for lines in assessment with every simulation engine.
+     * @throws Exception
+     */
+    @Test
+    public void TestCalculationWithEachEngine() throws Exception{
+        String[] lines = {"0 1 2", "0 1 2 0 0 3 3", "0 1 1 1 1 0 2 2"};
+        int[] expected = {2, 4, 5};
+        SolverType[] solverTypes = {SolverType.UNION_GRAPH, SolverType.COMPACT_UNION_GRAPH,
+                SolverType.DISJOINT_SET_UNION_GRAPH};
+        for(SolverType solverType: solverTypes){
+            for(int i=0; i<lines.length; i++){
+                this.experiment = new BytelandUnionExperiment(lines[i].split(" ").length+1);
+                this.experiment.setAdjacencyMatrix(lines[i]);
+                this.experiment.setSolverType(solverType);
+                Assertions.assertEquals((int)this.experiment.calculateMinUnionCount(), expected[i]);
+            }
+        }
+    }
+
+    /**
+     * Test for tree solver, which should give exact minimum.
+     * @throws Exception
+     */
+    @Test
+    public void TestTreeSolver() throws Exception{
+        String[] lines = {"0 1 2", "0 1 2 0 0 3 3", "0 1 1 1 1 0 2 2", "0 1 2 2 2 0"};
+        int[] expected = {2, 4, 5, 4};
+        for(int i=0; i<lines.length; i++){
+            this.experiment = new BytelandUnionExperiment(lines[i].split(" ").length+1);
+            this.experiment.setAdjacencyMatrix(lines[i]);
+            this.experiment.setSolverType(SolverType.UNION_TREE);
+            Assertions.assertEquals((int)this.experiment.calculateMinUnionCount(), expected[i]);
+        }
+        //City 0 is isolated.
+        this.experiment = new BytelandUnionExperiment(3);
+        this.experiment.setAdjacencyMatrix("2 1");
+        this.experiment.setSolverType(SolverType.UNION_TREE);
+        Assertions.assertThrows(NotUnifiableException.class, () -> this.experiment.calculateMinUnionCount());
+    }
+
+    /**
+     * Tree solver should solve a million cities well under a second, also when a city has many children with long
+     * critical lists (spider, star of paths of growing lengths), not only for random recursive trees.
+     * @throws Exception
+     */
+    @Test
+    public void TestTreeSolverOnMillionCities() throws Exception{
+        int numOfCities = 1000000;
+        int[][] trees = {spider(numOfCities, 20), starOfPaths(numOfCities),
+                TreeShape.RANDOM_RECURSIVE.generate(numOfCities, 27), TreeShape.STAR.generate(numOfCities, 0)};
+        int[] expected = {50004, 1414, 27, numOfCities - 1};
+        for(int i=0; i<trees.length; i++){
+            solveTree(trees[i]);//Solver is compiled during the first run, the second one is timed.
+            long start = System.nanoTime();
+            int stepNumber = solveTree(trees[i]);
+            long millis = (System.nanoTime() - start)/1000000;
+            Assertions.assertEquals(expected[i], stepNumber);
+            Assertions.assertTrue(millis<1000, String.format("Tree %s took %s ms", i, millis));
+        }
+    }
+
+    private static int solveTree(int[] parents) throws Exception{
+        BytelandUnionExperiment experiment = new BytelandUnionExperiment(parents.length + 1, parents.length + 1);
+        experiment.setAdjacencyMatrix(parents);
+        experiment.setSolverType(SolverType.UNION_TREE);
+        return experiment.calculateMinUnionCount();
+    }
+
+    /**
+     * Paths of given length (the last one shorter) joined at city 0.
+     */
+    private static int[] spider(int numOfCities, int length){
+        int[] parents = new int[numOfCities - 1];
+        for(int city=1; city<numOfCities; city++){
+            parents[city - 1] = (city - 1)%length==0 ? 0 : city - 1;
+        }
+        return parents;
+    }
+
+    /**
+     * Paths of lengths 1, 2, 3... (the last one shorter) joined at city 0.
+     */
+    private static int[] starOfPaths(int numOfCities){
+        int[] parents = new int[numOfCities - 1];
+        for(int city=1, length=1; city<numOfCities; length++){
+            for(int k=0; k<length && city<numOfCities; k++, city++){
+                parents[city - 1] = k==0 ? 0 : city - 1;
+            }
+        }
+        return parents;
+    }
+
+    /**
+     * Test for relation store with node ids beyond assessment limits, where former relation hashes collided, and for
+     * relations being read-only outside of the graph.
+     * @throws Exception
+     */
+    @Test
+    public void TestRelationsOfLargeIds() throws Exception{
+        Set<Integer> hashes = new HashSet<Integer>();
+        for(int id=0; id<4000; id++){
+            hashes.add(new Relation(new Node<Integer>(id), new Node<Integer>(id + 3101)).hashCode());
+            hashes.add(new Relation(new Node<Integer>(id + 3101), new Node<Integer>(id + 1)).hashCode());
+        }
+        Assertions.assertTrue(hashes.size()>7900);
+        //Caterpillar of 10000 cities, every city of the spine has a leg.
+        int numOfCities = 10000;
+        List<List<Integer>> adjacencyMatrix = new ArrayList<List<Integer>>();
+        StringBuilder parents = new StringBuilder();
+        for(int i=0; i<numOfCities; i++){
+            adjacencyMatrix.add(new LinkedList<Integer>());
+        }
+        for(int city=1; city<numOfCities; city++){
+            int parent = city%2==1 ? Math.max(city - 2, 0) : city - 1;
+            adjacencyMatrix.get(city).add(parent);
+            parents.append(city == 1 ? "" : " ").append(parent);
+        }
+        UnionGraph graph = new UnionGraph(adjacencyMatrix);
+        Assertions.assertEquals(numOfCities - 1, graph.getRelations().size());
+        Relation relation = new Relation(graph.retrieveNode(9998), graph.retrieveNode(9997));
+        Assertions.assertTrue(graph.getRelations().contains(relation));
+        //Relations are changed through the graph only, which keeps links of nodes consistent.
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> graph.getRelations().remove(relation));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> graph.getRelations().clear());
+        graph.removeRelation(relation);
+        Assertions.assertFalse(graph.getRelations().contains(relation));
+        Assertions.assertEquals(2, graph.retrieveNode(9997).getDegree());
+        graph.addRelation(relation);
+        Assertions.assertEquals(numOfCities - 1, graph.getRelations().size());
+        int stepNumber = graph.unifyAndReturnStepNumber();
+        this.experiment = new BytelandUnionExperiment(numOfCities, numOfCities);
+        this.experiment.setAdjacencyMatrix(parents.toString());
+        this.experiment.setSolverType(SolverType.COMPACT_UNION_GRAPH);
+        Assertions.assertEquals((int)this.experiment.calculateMinUnionCount(), stepNumber);
+    }
+
+    /**
+     * Rounds should visit nodes in the order set, whatever ids hash to and whatever order relations are given in,
+     * when ties between candidates are resolved by id too. In id order they take the steps CompactUnionGraph does.
+     * @throws Exception
+     */
+    @Test
+    public void TestNodeOrder() throws Exception{
+        int numOfCities = 100000;//Ids above 2^16 are spread over the hash table out of order.
+        int[] parents = new ExperimentGenerator(TreeShape.RANDOM_RECURSIVE, 21, true).nextParents(numOfCities);
+        UnionGraph graph = new UnionGraph(toAdjacencyMatrix(parents, false));
+        graph.setNodeOrder(UnionGraph.BY_NODE_ID);
+        graph.setCandidateOrder(UnionGraph.BY_NODE_ID);
+        Assertions.assertEquals(new CompactUnionGraph(parents, numOfCities).unifyAndReturnStepNumber(),
+                graph.unifyAndReturnStepNumber());
+
+        int[] stepNumbers = new int[2];
+        for(int i=0; i<stepNumbers.length; i++){
+            UnionGraph reversed = new UnionGraph(toAdjacencyMatrix(parents, i==1));
+            reversed.setNodeOrder(Collections.reverseOrder(UnionGraph.BY_NODE_ID));
+            reversed.setCandidateOrder(UnionGraph.BY_NODE_ID);
+            stepNumbers[i] = reversed.unifyAndReturnStepNumber();
+        }
+        Assertions.assertEquals(stepNumbers[0], stepNumbers[1]);
+    }
+
+    /**
+     * By default nodes should be visited and ties resolved in id order, so step numbers should be the ones of
+     * CompactUnionGraph, numbered or shuffled, also for more nodes than a HashSet keeps in order of id.
+     * @throws Exception
+     */
+    @Test
+    public void TestDefaultOrderIsNodeId() throws Exception{
+        Random random = new Random(23);
+        for(TreeShape shape: TreeShape.values()){
+            for(boolean shuffle: new boolean[]{false, true}){
+                ExperimentGenerator generator = new ExperimentGenerator(shape, shape.ordinal(), shuffle);
+                for(int i=0; i<25; i++){
+                    int[] parents = generator.nextParents(2 + random.nextInt(i<20 ? 100 : 600));
+                    List<List<Integer>> adjacencyMatrix = toAdjacencyMatrix(parents, false);
+                    Assertions.assertEquals(new CompactUnionGraph(adjacencyMatrix).unifyAndReturnStepNumber(),
+                            new UnionGraph(adjacencyMatrix).unifyAndReturnStepNumber(),
+                            String.format("%s: %s", shape, ExperimentGenerator.toParentString(parents)));
+                }
+            }
+        }
+    }
+
+    private static List<List<Integer>> toAdjacencyMatrix(int[] parents, boolean reverseRows){
+        List<List<Integer>> adjacencyMatrix = new ArrayList<List<Integer>>();
+        for(int city=0; city<=parents.length; city++){
+            adjacencyMatrix.add(new ArrayList<Integer>());
+        }
+        for(int city=1; city<=parents.length; city++){
+            adjacencyMatrix.get(city).add(parents[city - 1]);
+            adjacencyMatrix.get(parents[city - 1]).add(city);
+        }
+        if(reverseRows){
+            for(List<Integer> row: adjacencyMatrix){
+                Collections.reverse(row);
+            }
+        }
+        return adjacencyMatrix;
+    }
 }